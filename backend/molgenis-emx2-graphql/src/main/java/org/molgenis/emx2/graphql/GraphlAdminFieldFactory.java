@@ -1,5 +1,6 @@
 package org.molgenis.emx2.graphql;
 
+import static org.molgenis.emx2.graphql.GraphqlApiFactory.getDatabase;
 import static org.molgenis.emx2.graphql.GraphqlConstants.*;
 
 import graphql.Scalars;
@@ -21,7 +22,7 @@ public class GraphlAdminFieldFactory {
           .build();
 
   // retrieve user list, user count
-  public static GraphQLFieldDefinition queryAdminField(Database db) {
+  public static GraphQLFieldDefinition queryAdminField(Database aDatabase) {
     GraphQLOutputType adminType =
         GraphQLObjectType.newObject()
             .name("_AdminType")
@@ -37,9 +38,8 @@ public class GraphlAdminFieldFactory {
                     .name("userCount")
                     .type(Scalars.GraphQLInt)
                     .dataFetcher(
-                        dataFetchingEnvironment -> {
-                          return db.countUsers();
-                        })
+                        dataFetchingEnvironment ->
+                            getDatabase(dataFetchingEnvironment, aDatabase).countUsers())
                     .build())
             .build();
 
@@ -47,6 +47,7 @@ public class GraphlAdminFieldFactory {
         .name("_admin")
         .dataFetcher(
             dataFetchingEnvironment -> {
+              Database db = getDatabase(dataFetchingEnvironment, aDatabase);
               Map<String, Object> result = new LinkedHashMap<>();
               int limit = 100;
               int offset = 0;
@@ -8,17 +8,152 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import graphql.ExecutionResult;
 import graphql.GraphQL;
 import graphql.execution.AsyncExecutionStrategy;
+import graphql.schema.DataFetchingEnvironment;
 import graphql.schema.GraphQLObjectType;
 import graphql.schema.GraphQLSchema;
 import java.io.IOException;
 import java.util.*;
 import org.molgenis.emx2.*;
 import org.molgenis.emx2.json.JsonUtil;
+import org.molgenis.emx2.sql.SqlSchemaMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class GraphqlApiFactory {
   private static Logger logger = LoggerFactory.getLogger(GraphqlApiFactory.class);
+  private static final int CACHE_SIZE = 100;
+  // graphql only depends on metadata and admin/roles of the user, so is shared between users
+  private static final Map<String, GraphQL> cache =
+      Collections.synchronizedMap(
+          new LinkedHashMap<String, GraphQL>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, GraphQL> eldest) {
+              return size() > CACHE_SIZE;
+            }
+          });
+
+  /**
+   * @return graphql for the schema, shared with users having the same roles. Execute it with the
+   *     Database of the user as context, see getDatabase.
+   */
+  public GraphQL getGraphqlForSchema(Schema schema) {
+    String key =
+        schema.getName()
+            + "|"
+            + getVersion(schema)
+            + "|"
+            + getRolesKey(schema)
+            + "|"
+            + getRefSchemasKey(schema);
+    GraphQL result = cache.get(key);
+    if (result == null) {
+      result = createGraphqlForSchema(schema);
+      cache.put(key, result);
+    }
+    return result;
+  }
+
+  /** @return graphql for the database, shared between users, see getGraphqlForSchema */
+  public GraphQL getGraphqlForDatabase(Database database) {
+    String key = "|" + (ADMIN.equals(database.getActiveUser()) ? ADMIN : "");
+    GraphQL result = cache.get(key);
+    if (result == null) {
+      result = createGraphqlForDatabase(database);
+      cache.put(key, result);
+    }
+    return result;
+  }
+
+  /** should be called when metadata or permissions change */
+  public static void clearCache() {
+    cache.clear();
+  }
+
+  private static long getVersion(Schema schema) {
+    if (schema.getMetadata() instanceof SqlSchemaMetadata) {
+      return ((SqlSchemaMetadata) schema.getMetadata()).getVersion();
+    }
+    return -1;
+  }
+
+  // tables of referenced schemas are included as far as the user can see them
+  private static String getRefSchemasKey(Schema schema) {
+    Map<String, String> refSchemas = new TreeMap<>();
+    refSchemas.put(schema.getName(), String.valueOf(getVersion(schema)));
+    addRefSchemas(schema, refSchemas);
+    refSchemas.remove(schema.getName());
+    return refSchemas.toString();
+  }
+
+  private static void addRefSchemas(Schema schema, Map<String, String> refSchemas) {
+    for (TableMetadata table : schema.getMetadata().getTables()) {
+      for (Column column : table.getColumns()) {
+        if (column.isReference() && !refSchemas.containsKey(column.getRefSchema())) {
+          Schema refSchema = schema.getDatabase().getSchema(column.getRefSchema());
+          if (refSchema == null) {
+            refSchemas.put(column.getRefSchema(), "invisible");
+          } else {
+            refSchemas.put(refSchema.getName(), String.valueOf(getVersion(refSchema)));
+            addRefSchemas(refSchema, refSchemas);
+          }
+        }
+      }
+    }
+  }
+
+  private static String getRolesKey(Schema schema) {
+    if (ADMIN.equals(schema.getDatabase().getActiveUser())) {
+      return ADMIN;
+    }
+    List<String> roles = new ArrayList<>(schema.getInheritedRolesForActiveUser());
+    Collections.sort(roles);
+    return String.join(",", roles);
+  }
+
+  /**
+   * Data fetchers must use this instead of the database the graphql was created with, because
+   * graphql is shared between users.
+   *
+   * @return the Database passed as context of the execution, directly or via
+   *     GraphqlJsonPassthrough, or fallback if there is none
+   */
+  static Database getDatabase(DataFetchingEnvironment dataFetchingEnvironment, Database fallback) {
+    Object context = dataFetchingEnvironment.getContext();
+    if (context instanceof Database) {
+      return (Database) context;
+    }
+    if (context instanceof GraphqlJsonPassthrough) {
+      return ((GraphqlJsonPassthrough) context).getDatabase();
+    }
+    return fallback;
+  }
+
+  /** @return schema with the name of fallback as seen by the Database of getDatabase */
+  static Schema getSchema(DataFetchingEnvironment dataFetchingEnvironment, Schema fallback) {
+    Database database = getDatabase(dataFetchingEnvironment, fallback.getDatabase());
+    if (database == fallback.getDatabase()) {
+      return fallback;
+    }
+    Schema schema = database.getSchema(fallback.getName());
+    if (schema == null) {
+      throw new GraphqlException(
+          "Schema '" + fallback.getName() + "' does not exist or permission denied");
+    }
+    return schema;
+  }
+
+  /** @return table with the name of fallback as seen by the Database of getDatabase */
+  static Table getTable(DataFetchingEnvironment dataFetchingEnvironment, Table fallback) {
+    Schema schema = getSchema(dataFetchingEnvironment, fallback.getSchema());
+    if (schema == fallback.getSchema()) {
+      return fallback;
+    }
+    Table table = schema.getTable(fallback.getName());
+    if (table == null) {
+      throw new GraphqlException("Table '" + fallback.getName() + "' not found");
+    }
+    return table;
+  }
 
   static Iterable<Row> convertToRows(TableMetadata metadata, List<Map<String, Object>> map) {
     List<Row> rows = new ArrayList<>();
@@ -145,6 +280,7 @@ public class GraphqlApiFactory {
     return GraphQL.newGraphQL(
             GraphQLSchema.newSchema().query(queryBuilder).mutation(mutationBuilder).build())
         .mutationExecutionStrategy(new AsyncExecutionStrategy(new GraphqlCustomExceptionHandler()))
+        .preparsedDocumentProvider(new GraphqlDocumentCache())
         .build();
   }
 
@@ -199,6 +335,7 @@ public class GraphqlApiFactory {
                     .build())
             .mutationExecutionStrategy(
                 new AsyncExecutionStrategy(new GraphqlCustomExceptionHandler()))
+            .preparsedDocumentProvider(new GraphqlDocumentCache())
             .build();
 
     if (logger.isInfoEnabled()) {
@@ -228,11 +365,16 @@ public class GraphqlApiFactory {
       if (column.isReference()
           && !column.getRefSchema().equals(schema.getName())
           && !importedTables.contains(column.getRefTableName())) {
-        Table importedTable =
-            schema
-                .getDatabase()
-                .getSchema(column.getRefSchema())
-                .getTable(column.getRefTableName());
+        Schema refSchema = schema.getDatabase().getSchema(column.getRefSchema());
+        if (refSchema == null) {
+          throw new GraphqlException(
+              "Schema '"
+                  + schema.getName()
+                  + "' references schema '"
+                  + column.getRefSchema()
+                  + "' that does not exist or permission denied");
+        }
+        Table importedTable = refSchema.getTable(column.getRefTableName());
         importedTables.add(importedTable.getName());
 
         addImportedTablesRecursively(
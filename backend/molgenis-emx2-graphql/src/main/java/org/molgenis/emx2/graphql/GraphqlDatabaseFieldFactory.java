@@ -1,5 +1,6 @@
 package org.molgenis.emx2.graphql;
 
+import static org.molgenis.emx2.graphql.GraphqlApiFactory.getDatabase;
 import static org.molgenis.emx2.graphql.GraphqlApiMutationResult.Status.SUCCESS;
 import static org.molgenis.emx2.graphql.GraphqlApiMutationResult.typeForMutationResult;
 import static org.molgenis.emx2.graphql.GraphqlSchemaFieldFactory.outputSettingsMetadataType;
@@ -17,7 +18,7 @@ public class GraphqlDatabaseFieldFactory {
     // no instances
   }
 
-  public GraphQLFieldDefinition.Builder deleteMutation(Database database) {
+  public GraphQLFieldDefinition.Builder deleteMutation(Database aDatabase) {
     return GraphQLFieldDefinition.newFieldDefinition()
         .name("deleteSchema")
         .type(typeForMutationResult)
@@ -25,13 +26,14 @@ public class GraphqlDatabaseFieldFactory {
             GraphQLArgument.newArgument().name(GraphqlConstants.NAME).type(Scalars.GraphQLString))
         .dataFetcher(
             dataFetchingEnvironment -> {
+              Database database = getDatabase(dataFetchingEnvironment, aDatabase);
               String name = dataFetchingEnvironment.getArgument("name");
               database.dropSchema(name);
               return new GraphqlApiMutationResult(SUCCESS, "Schema %s dropped", name);
             });
   }
 
-  public GraphQLFieldDefinition.Builder createMutation(Database database) {
+  public GraphQLFieldDefinition.Builder createMutation(Database aDatabase) {
     return GraphQLFieldDefinition.newFieldDefinition()
         .name("createSchema")
         .type(typeForMutationResult)
@@ -39,6 +41,7 @@ public class GraphqlDatabaseFieldFactory {
             GraphQLArgument.newArgument().name(GraphqlConstants.NAME).type(Scalars.GraphQLString))
         .dataFetcher(
             dataFetchingEnvironment -> {
+              Database database = getDatabase(dataFetchingEnvironment, aDatabase);
               String name = dataFetchingEnvironment.getArgument("name");
               database.createSchema(name);
               return new GraphqlApiMutationResult(SUCCESS, "Schema %s created", name);
@@ -54,11 +57,12 @@ public class GraphqlDatabaseFieldFactory {
             );
   }
 
-  public GraphQLFieldDefinition.Builder schemasQuery(Database database) {
+  public GraphQLFieldDefinition.Builder schemasQuery(Database aDatabase) {
     return GraphQLFieldDefinition.newFieldDefinition()
         .name("Schemas")
         .dataFetcher(
             dataFetchingEnvironment -> {
+              Database database = getDatabase(dataFetchingEnvironment, aDatabase);
               List<Map<String, String>> result = new ArrayList<>();
               for (String name : database.getSchemaNames()) {
                 result.add(Map.of("name", name));
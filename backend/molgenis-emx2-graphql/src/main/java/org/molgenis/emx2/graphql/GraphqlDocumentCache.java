@@ -0,0 +1,69 @@
+package org.molgenis.emx2.graphql;
+
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Caches parsed and validated queries, so repeated queries skip parse and validate. Validation
+ * depends on the graphql schema, therefore each GraphQL instance needs its own cache.
+ */
+public class GraphqlDocumentCache implements PreparsedDocumentProvider {
+  private static final int DEFAULT_SIZE = 200;
+  private final Map<String, PreparsedDocumentEntry> documents;
+
+  public GraphqlDocumentCache() {
+    this(DEFAULT_SIZE);
+  }
+
+  public GraphqlDocumentCache(int maxSize) {
+    documents =
+        Collections.synchronizedMap(
+            new LinkedHashMap<String, PreparsedDocumentEntry>(16, 0.75f, true) {
+              @Override
+              protected boolean removeEldestEntry(Map.Entry<String, PreparsedDocumentEntry> e) {
+                return size() > maxSize;
+              }
+            });
+  }
+
+  @Override
+  public PreparsedDocumentEntry getDocument(
+      ExecutionInput executionInput,
+      Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+    String key = sha256(executionInput.getQuery());
+    PreparsedDocumentEntry result = documents.get(key);
+    if (result == null) {
+      result = parseAndValidateFunction.apply(executionInput);
+      documents.put(key, result);
+    }
+    return result;
+  }
+
+  public int size() {
+    return documents.size();
+  }
+
+  /** @return hex encoded sha256 hash of the query, also used as id of persisted queries */
+  public static String sha256(String query) {
+    try {
+      byte[] hash =
+          MessageDigest.getInstance("SHA-256").digest(query.getBytes(StandardCharsets.UTF_8));
+      StringBuilder result = new StringBuilder();
+      for (byte b : hash) {
+        result.append(String.format("%02x", b));
+      }
+      return result.toString();
+    } catch (NoSuchAlgorithmException e) {
+      // every java platform must support SHA-256
+      throw new GraphqlException("Hashing of query failed", e);
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package org.molgenis.emx2.graphql;
+
+import static org.molgenis.emx2.ColumnType.DECIMAL;
+import static org.molgenis.emx2.ColumnType.DECIMAL_ARRAY;
+import static org.molgenis.emx2.ColumnType.JSONB_ARRAY;
+
+import graphql.ExecutionResult;
+import graphql.language.Field;
+import graphql.language.OperationDefinition;
+import graphql.language.Selection;
+import graphql.language.SelectionSet;
+import graphql.schema.DataFetchingEnvironment;
+import java.io.IOException;
+import java.util.Map;
+import org.molgenis.emx2.Column;
+import org.molgenis.emx2.Database;
+import org.molgenis.emx2.TableMetadata;
+import org.molgenis.emx2.json.JsonUtil;
+
+/**
+ * Execution context that lets a table query put the json produced by postgresql straight into the
+ * response, instead of parsing it into maps that graphql-java walks and we serialize again. Only
+ * applies to queries with a single table as root field whose selection the json matches exactly,
+ * otherwise the fetcher falls back to the normal path.
+ */
+public class GraphqlJsonPassthrough {
+  private final Database database;
+  private String fieldName;
+  private String json;
+
+  public GraphqlJsonPassthrough(Database database) {
+    this.database = database;
+  }
+
+  public Database getDatabase() {
+    return database;
+  }
+
+  void setJson(String fieldName, String json) {
+    this.fieldName = fieldName;
+    this.json = json;
+  }
+
+  boolean isPassedThrough() {
+    return fieldName != null;
+  }
+
+  /** @return same as convertExecutionResultToJson, using the json passed through if any */
+  public String toJson(ExecutionResult executionResult) throws IOException {
+    if (!isPassedThrough()) {
+      return GraphqlApiFactory.convertExecutionResultToJson(executionResult);
+    }
+    String data = json != null ? json : "{\"" + fieldName + "\":null}";
+    if (executionResult.getErrors().isEmpty() && executionResult.getExtensions() == null) {
+      return "{\"data\":" + data + "}";
+    }
+    // rare, so no need to be fast
+    Map<String, Object> result = executionResult.toSpecification();
+    result.put("data", GraphqlApiFactory.transform(data));
+    return JsonUtil.getWriter().writeValueAsString(result);
+  }
+
+  static GraphqlJsonPassthrough get(DataFetchingEnvironment dataFetchingEnvironment) {
+    Object context = dataFetchingEnvironment.getContext();
+    return context instanceof GraphqlJsonPassthrough ? (GraphqlJsonPassthrough) context : null;
+  }
+
+  /** @return true if the json of the table query would be the same as graphql-java produces */
+  static boolean canPassThrough(
+      DataFetchingEnvironment dataFetchingEnvironment, TableMetadata table) {
+    OperationDefinition operation = dataFetchingEnvironment.getOperationDefinition();
+    return OperationDefinition.Operation.QUERY.equals(operation.getOperation())
+        && operation.getSelectionSet().getSelections().size() == 1
+        && isPlain(dataFetchingEnvironment.getField())
+        && canPassThrough(dataFetchingEnvironment.getField().getSelectionSet(), table);
+  }
+
+  private static boolean canPassThrough(SelectionSet selectionSet, TableMetadata table) {
+    for (Selection<?> selection : selectionSet.getSelections()) {
+      if (!isPlain(selection)) {
+        return false;
+      }
+      Field field = (Field) selection;
+      // aggregates are small anyway
+      if (field.getName().endsWith("_agg")) {
+        return false;
+      }
+      Column column = table != null ? table.getColumn(field.getName()) : null;
+      // graphql-java turns these into strings, and formats decimals differently than postgres
+      if (column != null
+          && (JSONB_ARRAY.equals(column.getColumnType())
+              || DECIMAL.equals(column.getColumnType())
+              || DECIMAL_ARRAY.equals(column.getColumnType()))) {
+        return false;
+      }
+      if (field.getSelectionSet() != null
+          && !canPassThrough(
+              field.getSelectionSet(),
+              column != null && column.isReference() ? column.getRefTable() : null)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // aliases, fragments, directives and introspection are applied by graphql-java, not in the json
+  private static boolean isPlain(Selection<?> selection) {
+    if (!(selection instanceof Field)) {
+      return false;
+    }
+    Field field = (Field) selection;
+    return field.getAlias() == null
+        && field.getDirectives().isEmpty()
+        && !field.getName().startsWith("__");
+  }
+}
@@ -1,5 +1,7 @@
 package org.molgenis.emx2.graphql;
 
+import static org.molgenis.emx2.graphql.GraphqlApiFactory.getDatabase;
+
 import graphql.Scalars;
 import graphql.schema.GraphQLFieldDefinition;
 import graphql.schema.GraphQLObjectType;
@@ -14,11 +16,12 @@ public class GraphqlManifesFieldFactory {
   public static final String SPECIFICATION_VERSION = "SpecificationVersion";
   public static final String DATABASE_VERSION = "DatabaseVersion";
 
-  public GraphQLFieldDefinition queryVersionField(Database db) {
+  public GraphQLFieldDefinition queryVersionField(Database aDatabase) {
     return GraphQLFieldDefinition.newFieldDefinition()
         .name("_manifest")
         .dataFetcher(
             dataFetchingEnvironment -> {
+              Database db = getDatabase(dataFetchingEnvironment, aDatabase);
               Map<String, String> result = new HashMap<>();
               result.put(IMPLEMENTATION_VERSION, Version.getImplementationVersion());
               result.put(SPECIFICATION_VERSION, Version.getSpecificationVersion());
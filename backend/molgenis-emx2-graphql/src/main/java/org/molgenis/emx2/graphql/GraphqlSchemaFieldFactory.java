@@ -1,6 +1,7 @@
 package org.molgenis.emx2.graphql;
 
 import static org.molgenis.emx2.Constants.*;
+import static org.molgenis.emx2.graphql.GraphqlApiFactory.getSchema;
 import static org.molgenis.emx2.graphql.GraphqlApiMutationResult.Status.SUCCESS;
 import static org.molgenis.emx2.graphql.GraphqlApiMutationResult.typeForMutationResult;
 import static org.molgenis.emx2.graphql.GraphqlConstants.*;
@@ -325,9 +326,9 @@ public class GraphqlSchemaFieldFactory {
     // hide constructor
   }
 
-  private static DataFetcher<?> queryFetcher(Schema schema) {
+  private static DataFetcher<?> queryFetcher(Schema aSchema) {
     return dataFetchingEnvironment -> {
-
+      Schema schema = getSchema(dataFetchingEnvironment, aSchema);
       // add tables
       String json = JsonUtil.schemaToJson(schema.getMetadata());
       Map<String, Object> result = new ObjectMapper().readValue(json, Map.class);
@@ -351,8 +352,9 @@ public class GraphqlSchemaFieldFactory {
     };
   }
 
-  private static DataFetcher<?> dropFetcher(Schema schema) {
+  private static DataFetcher<?> dropFetcher(Schema aSchema) {
     return dataFetchingEnvironment -> {
+      Schema schema = getSchema(dataFetchingEnvironment, aSchema);
       StringBuilder message = new StringBuilder();
       schema
           .getDatabase()
@@ -444,7 +446,7 @@ public class GraphqlSchemaFieldFactory {
         .dataFetcher(
             dataFetchingEnvironment ->
                 // add settings
-                schema.getMetadata().getSettings().stream()
+                getSchema(dataFetchingEnvironment, schema).getMetadata().getSettings().stream()
                     .map(entry -> Map.of("key", entry.getKey(), VALUE, entry.getValue()))
                     .collect(Collectors.toList()));
   }
@@ -473,8 +475,9 @@ public class GraphqlSchemaFieldFactory {
         .build();
   }
 
-  private DataFetcher<?> changeFetcher(Schema schema) {
+  private DataFetcher<?> changeFetcher(Schema aSchema) {
     return dataFetchingEnvironment -> {
+      Schema schema = getSchema(dataFetchingEnvironment, aSchema);
       schema
           .getDatabase()
           .tx(
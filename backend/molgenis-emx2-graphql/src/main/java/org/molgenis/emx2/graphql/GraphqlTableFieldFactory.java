@@ -2,6 +2,8 @@ package org.molgenis.emx2.graphql;
 
 import static org.molgenis.emx2.ColumnType.REF;
 import static org.molgenis.emx2.FilterBean.*;
+import static org.molgenis.emx2.graphql.GraphqlApiFactory.getSchema;
+import static org.molgenis.emx2.graphql.GraphqlApiFactory.getTable;
 import static org.molgenis.emx2.graphql.GraphqlApiFactory.transform;
 import static org.molgenis.emx2.graphql.GraphqlApiMutationResult.Status.SUCCESS;
 import static org.molgenis.emx2.graphql.GraphqlApiMutationResult.typeForMutationResult;
@@ -64,6 +66,16 @@ public class GraphqlTableFieldFactory {
                 .name(GraphqlConstants.OFFSET)
                 .type(Scalars.GraphQLInt)
                 .build())
+        .argument(
+            GraphQLArgument.newArgument()
+                .name(GraphqlConstants.AFTER)
+                .type(Scalars.GraphQLString)
+                .build())
+        .argument(
+            GraphQLArgument.newArgument()
+                .name(GraphqlConstants.BEFORE)
+                .type(Scalars.GraphQLString)
+                .build())
         .argument(
             GraphQLArgument.newArgument()
                 .name(GraphqlConstants.ORDERBY)
@@ -92,6 +104,11 @@ public class GraphqlTableFieldFactory {
 
   private GraphQLObjectType createTableObjectType(Table table) {
     GraphQLObjectType.Builder tableBuilder = GraphQLObjectType.newObject().name(table.getName());
+    // opaque cursor for keyset pagination using 'after' and 'before'
+    tableBuilder.field(
+        GraphQLFieldDefinition.newFieldDefinition()
+            .name(CURSOR_FIELD)
+            .type(Scalars.GraphQLString));
     for (Column col : table.getMetadata().getColumnsWithoutConstant())
       switch (col.getColumnType()) {
         case FILE:
@@ -178,6 +195,16 @@ public class GraphqlTableFieldFactory {
                           .name(GraphqlConstants.OFFSET)
                           .type(Scalars.GraphQLInt)
                           .build())
+                  .argument(
+                      GraphQLArgument.newArgument()
+                          .name(GraphqlConstants.AFTER)
+                          .type(Scalars.GraphQLString)
+                          .build())
+                  .argument(
+                      GraphQLArgument.newArgument()
+                          .name(GraphqlConstants.BEFORE)
+                          .type(Scalars.GraphQLString)
+                          .build())
                   .argument(
                       GraphQLArgument.newArgument()
                           .name(GraphqlConstants.ORDERBY)
@@ -451,6 +478,12 @@ public class GraphqlTableFieldFactory {
           if (args.containsKey(GraphqlConstants.OFFSET)) {
             sc.setOffset((int) args.get(GraphqlConstants.OFFSET));
           }
+          if (args.containsKey(GraphqlConstants.AFTER)) {
+            sc.setAfter((String) args.get(GraphqlConstants.AFTER));
+          }
+          if (args.containsKey(GraphqlConstants.BEFORE)) {
+            sc.setBefore((String) args.get(GraphqlConstants.BEFORE));
+          }
           if (args.containsKey(GraphqlConstants.ORDERBY)) {
             sc.setOrderBy((Map<String, Order>) args.get(GraphqlConstants.ORDERBY));
           }
@@ -462,7 +495,7 @@ public class GraphqlTableFieldFactory {
 
   private DataFetcher fetcherForTableQueryField(Table aTable) {
     return dataFetchingEnvironment -> {
-      Table table = aTable;
+      Table table = getTable(dataFetchingEnvironment, aTable);
       Query q = table.query();
       String fieldName = dataFetchingEnvironment.getField().getName();
       if (fieldName.endsWith("_agg")) {
@@ -481,6 +514,12 @@ public class GraphqlTableFieldFactory {
       if (args.containsKey(GraphqlConstants.OFFSET)) {
         q.offset((int) args.get(GraphqlConstants.OFFSET));
       }
+      if (args.containsKey(GraphqlConstants.AFTER)) {
+        q.after((String) args.get(GraphqlConstants.AFTER));
+      }
+      if (args.containsKey(GraphqlConstants.BEFORE)) {
+        q.before((String) args.get(GraphqlConstants.BEFORE));
+      }
       if (args.containsKey(GraphqlConstants.ORDERBY)) {
         q.orderBy((Map<String, Order>) args.get(GraphqlConstants.ORDERBY));
       }
@@ -490,7 +529,17 @@ public class GraphqlTableFieldFactory {
         q.search(search);
       }
 
-      Object result = transform(q.retrieveJSON());
+      String json = q.retrieveJSON();
+      // fast path, skips converting the json to maps and back
+      GraphqlJsonPassthrough passthrough = GraphqlJsonPassthrough.get(dataFetchingEnvironment);
+      if (passthrough != null
+          && !fieldName.endsWith("_agg")
+          && GraphqlJsonPassthrough.canPassThrough(dataFetchingEnvironment, table.getMetadata())) {
+        passthrough.setJson(fieldName, json);
+        return null;
+      }
+
+      Object result = transform(json);
       // bit silly, we have to remove root field here. Some refactoring makes this look nicer
       if (result != null) return ((Map<String, Object>) result).get(fieldName);
       return null;
@@ -547,8 +596,9 @@ public class GraphqlTableFieldFactory {
     return fieldBuilder.build();
   }
 
-  private DataFetcher fetcher(Schema schema, MutationType mutationType) {
+  private DataFetcher fetcher(Schema aSchema, MutationType mutationType) {
     return dataFetchingEnvironment -> {
+      Schema schema = getSchema(dataFetchingEnvironment, aSchema);
       StringBuilder result = new StringBuilder();
       boolean any = false;
       for (String tableName : schema.getTableNames()) {
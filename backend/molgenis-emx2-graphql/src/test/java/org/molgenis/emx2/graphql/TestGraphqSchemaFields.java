@@ -370,6 +370,26 @@ public class TestGraphqSchemaFields {
     execute("mutation{drop(columns:[{table:\"Pet\", column:\"test2\"}]){message}}");
   }
 
+  @Test
+  public void testKeysetPagination() throws IOException {
+    JsonNode result = execute("{Pet(limit:1,orderby:{name:ASC}){name,_cursor}}");
+    assertEquals("pooky", result.at("/Pet/0/name").textValue());
+
+    result =
+        execute(
+            "{Pet(limit:1,orderby:{name:ASC},after:\""
+                + result.at("/Pet/0/_cursor").textValue()
+                + "\"){name,_cursor}}");
+    assertEquals("spike", result.at("/Pet/0/name").textValue());
+
+    result =
+        execute(
+            "{Pet(limit:1,orderby:{name:ASC},before:\""
+                + result.at("/Pet/0/_cursor").textValue()
+                + "\"){name}}");
+    assertEquals("pooky", result.at("/Pet/0/name").textValue());
+  }
+
   @Test
   public void testFileType() {}
 }
@@ -0,0 +1,44 @@
+package org.molgenis.emx2.graphql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.parser.Parser;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.Test;
+
+public class TestGraphqlDocumentCache {
+
+  @Test
+  public void testDocumentsAreParsedOnce() {
+    AtomicInteger parsed = new AtomicInteger();
+    Function<ExecutionInput, PreparsedDocumentEntry> parse =
+        input -> {
+          parsed.incrementAndGet();
+          return new PreparsedDocumentEntry(new Parser().parseDocument(input.getQuery()));
+        };
+    GraphqlDocumentCache cache = new GraphqlDocumentCache(2);
+
+    PreparsedDocumentEntry first =
+        cache.getDocument(ExecutionInput.newExecutionInput("{a}").build(), parse);
+    assertSame(first, cache.getDocument(ExecutionInput.newExecutionInput("{a}").build(), parse));
+    assertEquals(1, parsed.get());
+
+    // bounded
+    cache.getDocument(ExecutionInput.newExecutionInput("{b}").build(), parse);
+    cache.getDocument(ExecutionInput.newExecutionInput("{c}").build(), parse);
+    assertEquals(2, cache.size());
+    cache.getDocument(ExecutionInput.newExecutionInput("{a}").build(), parse);
+    assertEquals(4, parsed.get());
+  }
+
+  @Test
+  public void testSha256() {
+    assertEquals(
+        "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855",
+        GraphqlDocumentCache.sha256(""));
+  }
+}
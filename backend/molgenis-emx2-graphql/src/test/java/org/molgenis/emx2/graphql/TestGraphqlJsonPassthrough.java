@@ -0,0 +1,62 @@
+package org.molgenis.emx2.graphql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.molgenis.emx2.graphql.GraphqlApiFactory.convertExecutionResultToJson;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import java.io.IOException;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.molgenis.emx2.Database;
+import org.molgenis.emx2.Schema;
+import org.molgenis.emx2.examples.PetStoreExample;
+import org.molgenis.emx2.sql.TestDatabaseFactory;
+
+public class TestGraphqlJsonPassthrough {
+  private static final String schemaName = "TestGraphqlJsonPassthrough";
+  private static Database database;
+  private static GraphQL graphql;
+
+  @BeforeClass
+  public static void setup() {
+    database = TestDatabaseFactory.getTestDatabase();
+    Schema schema = database.dropCreateSchema(schemaName);
+    PetStoreExample.create(schema.getMetadata());
+    PetStoreExample.populate(schema);
+    graphql = new GraphqlApiFactory().createGraphqlForSchema(schema);
+  }
+
+  @Test
+  public void testPassthroughEqualsNormalPath() throws IOException {
+    assertPassthrough(true, "{Pet{name,status,category{name},tags{name}}}");
+    assertPassthrough(true, "{Pet(limit:1,offset:1){name}}");
+    assertPassthrough(true, "{Pet(filter:{name:{equals:\"spike\"}}){name}}");
+    assertPassthrough(true, "{Order{orderId,quantity,complete,pet{name,category{name}}}}");
+
+    // graphql-java needs to be involved
+    assertPassthrough(false, "{Pet{name,category{label:name}}}");
+    assertPassthrough(false, "{alias:Pet{name}}");
+    assertPassthrough(false, "{Pet{name,__typename}}");
+    assertPassthrough(false, "{Pet{...f}} fragment f on Pet{name}");
+    assertPassthrough(false, "{Pet{name @include(if:false)}}");
+    assertPassthrough(false, "{Pet{name}Tag{name}}");
+    assertPassthrough(false, "{Pet_agg{count}}");
+    assertPassthrough(false, "{Order{orderId,price,quantity}}");
+    assertPassthrough(false, "{Order{orderId,pet{name,weight}}}");
+  }
+
+  private void assertPassthrough(boolean expected, String query) throws IOException {
+    GraphqlJsonPassthrough context = new GraphqlJsonPassthrough(database);
+    ExecutionResult result =
+        graphql.execute(ExecutionInput.newExecutionInput(query).context(context));
+    assertTrue(result.getErrors().isEmpty());
+    assertEquals(expected, context.isPassedThrough());
+    String normal = convertExecutionResultToJson(graphql.execute(query));
+    ObjectMapper mapper = new ObjectMapper();
+    assertEquals(mapper.readTree(normal), mapper.readTree(context.toJson(result)));
+  }
+}
@@ -0,0 +1,124 @@
+package org.molgenis.emx2.graphql;
+
+import static org.junit.Assert.*;
+import static org.molgenis.emx2.Column.column;
+import static org.molgenis.emx2.TableMetadata.table;
+import static org.molgenis.emx2.graphql.GraphqlApiFactory.convertExecutionResultToJson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.ExecutionInput;
+import graphql.GraphQL;
+import java.io.IOException;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.molgenis.emx2.Database;
+import org.molgenis.emx2.MolgenisException;
+import org.molgenis.emx2.Privileges;
+import org.molgenis.emx2.Row;
+import org.molgenis.emx2.Schema;
+import org.molgenis.emx2.examples.CrossSchemaReferenceExample;
+import org.molgenis.emx2.sql.SqlDatabase;
+import org.molgenis.emx2.sql.TestDatabaseFactory;
+
+public class TestGraphqlSharedSchema {
+  private static final String schemaName = "TestGraphqlSharedSchema";
+  private static final String viewer1 = "TestGraphqlSharedSchemaViewer1";
+  private static final String viewer2 = "TestGraphqlSharedSchemaViewer2";
+  private static Database database;
+
+  @BeforeClass
+  public static void setup() {
+    database = TestDatabaseFactory.getTestDatabase();
+    database.addUser(viewer1);
+    database.addUser(viewer2);
+    Schema schema = database.dropCreateSchema(schemaName);
+    schema.addMember(viewer1, Privileges.VIEWER.toString());
+    schema.addMember(viewer2, Privileges.VIEWER.toString());
+    schema.create(table("Pet", column("name").setPkey()));
+    schema.getTable("Pet").insert(new Row().set("name", "pooky"));
+  }
+
+  @Test
+  public void testGraphqlIsSharedBetweenUsersWithSameRoles() throws IOException {
+    GraphqlApiFactory.clearCache();
+    Database session1 = new SqlDatabase(false);
+    session1.setActiveUser(viewer1);
+    Database session2 = new SqlDatabase(false);
+    session2.setActiveUser(viewer2);
+    Database adminSession = new SqlDatabase(false);
+    adminSession.setActiveUser("admin");
+
+    GraphQL graphql1 = new GraphqlApiFactory().getGraphqlForSchema(session1.getSchema(schemaName));
+    GraphQL graphql2 = new GraphqlApiFactory().getGraphqlForSchema(session2.getSchema(schemaName));
+    assertSame(graphql1, graphql2);
+    assertNotSame(
+        graphql1, new GraphqlApiFactory().getGraphqlForSchema(adminSession.getSchema(schemaName)));
+
+    // fetchers use the database passed as context
+    assertEquals(
+        viewer2, execute(graphql1, session2, "{_session{email}}").at("/_session/email").asText());
+    assertEquals("pooky", execute(graphql1, session2, "{Pet{name}}").at("/Pet/0/name").asText());
+
+    // changed metadata results in new graphql
+    database.getSchema(schemaName).create(table("Other", column("name").setPkey()));
+    session2.clearCache();
+    GraphQL graphql3 = new GraphqlApiFactory().getGraphqlForSchema(session2.getSchema(schemaName));
+    assertNotSame(graphql1, graphql3);
+    assertNotNull(execute(graphql3, session2, "{Other{name}}").get("Other"));
+  }
+
+  @Test
+  public void testReferencedSchemasAreSharedOnlyWhenVisible() throws IOException {
+    String refSchemaName = schemaName + "Ref1";
+    String otherSchemaName = schemaName + "Ref2";
+    Schema refSchema = database.dropCreateSchema(refSchemaName);
+    Schema otherSchema = database.dropCreateSchema(otherSchemaName);
+    CrossSchemaReferenceExample.create(refSchema, otherSchema);
+    // same roles in otherSchema, but only viewer1 can see refSchema
+    otherSchema.addMember(viewer1, Privileges.VIEWER.toString());
+    otherSchema.addMember(viewer2, Privileges.VIEWER.toString());
+    refSchema.addMember(viewer1, Privileges.VIEWER.toString());
+
+    GraphqlApiFactory.clearCache();
+    Database session1 = new SqlDatabase(false);
+    session1.setActiveUser(viewer1);
+    Database session2 = new SqlDatabase(false);
+    session2.setActiveUser(viewer2);
+
+    GraphQL graphql1 =
+        new GraphqlApiFactory().getGraphqlForSchema(session1.getSchema(otherSchemaName));
+    assertNotNull(execute(graphql1, session1, "{Child{name,parent{name}}}").get("Child"));
+    assertFailsToGetGraphql(session2, otherSchemaName);
+
+    // also when the other user comes first
+    GraphqlApiFactory.clearCache();
+    assertFailsToGetGraphql(session2, otherSchemaName);
+    assertNotNull(
+        execute(
+                new GraphqlApiFactory().getGraphqlForSchema(session1.getSchema(otherSchemaName)),
+                session1,
+                "{Child{name,parent{name}}}")
+            .get("Child"));
+  }
+
+  private void assertFailsToGetGraphql(Database session, String name) {
+    try {
+      new GraphqlApiFactory().getGraphqlForSchema(session.getSchema(name));
+      fail("should fail because referenced schema is not visible");
+    } catch (MolgenisException e) {
+      // expected
+    }
+  }
+
+  private JsonNode execute(GraphQL graphql, Database context, String query) throws IOException {
+    String result =
+        convertExecutionResultToJson(
+            graphql.execute(ExecutionInput.newExecutionInput(query).context(context)));
+    JsonNode node = new ObjectMapper().readTree(result);
+    if (node.get("errors") != null) {
+      throw new MolgenisException(node.get("errors").get(0).get("message").asText());
+    }
+    return node.get("data");
+  }
+}
@@ -0,0 +1,116 @@
+package org.molgenis.emx2.io;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Memory efficient set of keys for duplicate detection during import. Keeps 64-bit hashes in a
+ * primitive open addressing table and the key bytes in one growing arena, so a key costs its UTF-8
+ * bytes plus 16 bytes instead of a String and a HashMap node. Hash hits are verified against the
+ * stored bytes, so the result is exact.
+ */
+class CompactKeySet {
+  private static final float LOAD_FACTOR = 0.5f;
+  private long[] hashes;
+  private int[] offsets;
+  private byte[] arena;
+  private int arenaSize = 0;
+  private int size = 0;
+
+  CompactKeySet() {
+    this(1024);
+  }
+
+  CompactKeySet(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+    hashes = new long[capacity];
+    offsets = new int[capacity];
+    arena = new byte[Math.max(1024, expectedSize * 16)];
+  }
+
+  /** @return true if key was added, false if it was already present */
+  boolean add(String key) {
+    byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+    long hash = hash(bytes);
+    int mask = hashes.length - 1;
+    int slot = (int) (hash ^ (hash >>> 32)) & mask;
+    while (hashes[slot] != 0) {
+      if (hashes[slot] == hash && equalsStored(offsets[slot], bytes)) {
+        return false;
+      }
+      slot = (slot + 1) & mask;
+    }
+    hashes[slot] = hash;
+    offsets[slot] = store(bytes);
+    if (++size > hashes.length * LOAD_FACTOR) {
+      rehash();
+    }
+    return true;
+  }
+
+  int size() {
+    return size;
+  }
+
+  private int store(byte[] bytes) {
+    int needed = arenaSize + 4 + bytes.length;
+    if (needed < 0) {
+      throw new IllegalStateException("CompactKeySet is full");
+    }
+    if (needed > arena.length) {
+      long newLength = Math.max((long) arena.length * 2, needed);
+      arena = Arrays.copyOf(arena, (int) Math.min(newLength, Integer.MAX_VALUE - 8));
+    }
+    int offset = arenaSize;
+    arena[offset] = (byte) (bytes.length >>> 24);
+    arena[offset + 1] = (byte) (bytes.length >>> 16);
+    arena[offset + 2] = (byte) (bytes.length >>> 8);
+    arena[offset + 3] = (byte) bytes.length;
+    System.arraycopy(bytes, 0, arena, offset + 4, bytes.length);
+    arenaSize = needed;
+    return offset;
+  }
+
+  private boolean equalsStored(int offset, byte[] bytes) {
+    int length =
+        ((arena[offset] & 0xff) << 24)
+            | ((arena[offset + 1] & 0xff) << 16)
+            | ((arena[offset + 2] & 0xff) << 8)
+            | (arena[offset + 3] & 0xff);
+    return length == bytes.length
+        && Arrays.equals(arena, offset + 4, offset + 4 + length, bytes, 0, length);
+  }
+
+  private void rehash() {
+    long[] oldHashes = hashes;
+    int[] oldOffsets = offsets;
+    hashes = new long[oldHashes.length * 2];
+    offsets = new int[oldOffsets.length * 2];
+    int mask = hashes.length - 1;
+    for (int i = 0; i < oldHashes.length; i++) {
+      if (oldHashes[i] != 0) {
+        int slot = (int) (oldHashes[i] ^ (oldHashes[i] >>> 32)) & mask;
+        while (hashes[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        hashes[slot] = oldHashes[i];
+        offsets[slot] = oldOffsets[i];
+      }
+    }
+  }
+
+  /** FNV-1a with a murmur3 finalizer for good bit dispersion; 0 is reserved for empty slots */
+  private static long hash(byte[] bytes) {
+    long h = 0xcbf29ce484222325L;
+    for (byte b : bytes) {
+      h ^= b;
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h == 0 ? 1 : h;
+  }
+}
@@ -0,0 +1,72 @@
+package org.molgenis.emx2.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.molgenis.emx2.MolgenisException;
+import org.molgenis.emx2.Table;
+import org.molgenis.emx2.io.readers.CsvTableReader;
+import org.molgenis.emx2.tasks.Task;
+
+/**
+ * Imports a single csv into a table in one pass, saving in batches while parsing so the csv is
+ * never fully held in memory. Runs in one transaction, i.e. all rows are saved or none.
+ */
+public class ImportCsvTableTask extends Task {
+  private Table table;
+  private Reader reader;
+  private Path csvFile;
+  private boolean deleteCsvFile;
+
+  public ImportCsvTableTask(Reader reader, Table table) {
+    super("Import csv into table " + table.getName());
+    this.table = table;
+    this.reader = reader;
+  }
+
+  public ImportCsvTableTask(Path csvFile, Table table) {
+    super("Import csv into table " + table.getName());
+    this.table = table;
+    this.csvFile = csvFile;
+  }
+
+  /** imports the csv file and deletes it when done, e.g. when it is a spooled upload */
+  public ImportCsvTableTask(Path csvFile, Table table, boolean deleteCsvFile) {
+    this(csvFile, table);
+    this.deleteCsvFile = deleteCsvFile;
+  }
+
+  @Override
+  public void run() {
+    this.start();
+    try (Reader in =
+        reader != null ? reader : Files.newBufferedReader(csvFile, StandardCharsets.UTF_8)) {
+      String schemaName = table.getSchema().getName();
+      String tableName = table.getName();
+      table
+          .getSchema()
+          .tx(
+              db -> {
+                this.setDescription("Importing rows into " + tableName);
+                new ImportTableTask.ImportRowProcesssor(
+                        db.getSchema(schemaName).getTable(tableName), this)
+                    .process(CsvTableReader.read(in).iterator());
+              });
+    } catch (IOException e) {
+      this.error("Import failed: " + e.getMessage());
+      throw new MolgenisException("Import failed", e);
+    } catch (Exception e) {
+      this.error("Import failed: " + e.getMessage());
+      throw e;
+    } finally {
+      // before completing, so the file is gone once the task is seen as done
+      if (deleteCsvFile) {
+        csvFile.toFile().delete();
+      }
+    }
+    this.setTotal(this.getIndex());
+    this.complete("Imported " + this.getTotal() + " rows into " + table.getName());
+  }
+}
@@ -1,11 +1,13 @@
 package org.molgenis.emx2.io;
 
+import static org.molgenis.emx2.ColumnType.*;
+
 import java.util.*;
 import java.util.stream.Collectors;
 import org.jooq.Field;
+import org.molgenis.emx2.Column;
 import org.molgenis.emx2.Row;
 import org.molgenis.emx2.Table;
-import org.molgenis.emx2.TableMetadata;
 import org.molgenis.emx2.io.tablestore.RowProcessor;
 import org.molgenis.emx2.io.tablestore.TableStore;
 import org.molgenis.emx2.tasks.Task;
@@ -25,13 +27,7 @@ public class ImportTableTask extends Task {
 
     // validate column names, provide warning if some columns will be ignored
 
-    // validate uniqueness of the keys in the set
-    this.setDescription(
-        "Table " + table.getName() + ": Counting rows & checking that all key columns are unique");
-    source.processTable(table.getName(), new ValidatePkeyProcessor(table.getMetadata(), this));
-
-    // execute the actual loading
-    this.setTotal(this.getIndex());
+    // load in a single pass, checking uniqueness of the keys as we go
     this.setDescription("Importing rows into " + table.getName());
     source.processTable(table.getName(), new ImportRowProcesssor(table, this));
 
@@ -43,75 +39,83 @@ public class ImportTableTask extends Task {
     }
   }
 
-  public static class ValidatePkeyProcessor implements RowProcessor {
+  /**
+   * executes the import, and validates uniqueness of the keys in the set. On duplicates, remaining
+   * rows are only checked, and the task errors at the end so the transaction is rolled back.
+   *
+   * <p>When pipelined, rows are parsed and type converted on a separate thread while the
+   * transaction thread saves the previous batches.
+   */
+  static class ImportRowProcesssor implements RowProcessor {
+    static final int BATCH_SIZE = 1000;
+    static final int PIPELINE_DEPTH = 4;
+    private final Table table;
+    private final Task task;
+    private final boolean pipelined;
 
-    Set<String> duplicates = new HashSet<>();
-    Set<String> keys = new HashSet<>();
-    TableMetadata metadata;
-    Task task;
+    public ImportRowProcesssor(Table table, Task task) {
+      this(table, task, true);
+    }
 
-    public ValidatePkeyProcessor(TableMetadata metadata, Task task) {
-      this.metadata = metadata;
+    public ImportRowProcesssor(Table table, Task task, boolean pipelined) {
+      this.table = table;
       this.task = task;
+      this.pipelined = pipelined;
     }
 
     @Override
     public void process(Iterator<Row> iterator) {
-
-      task.setIndex(0);
-
-      while (iterator.hasNext()) {
-        Row row = iterator.next();
-        String keyValue = "";
-        for (Field f : metadata.getPrimaryKeyFields()) {
-          keyValue += row.getString(f.getName()) + ",";
-        }
-        keyValue = keyValue.substring(0, keyValue.length() - 1);
-        if (keys.contains(keyValue)) {
-          duplicates.add(keyValue);
-          String keyFields =
-              metadata.getPrimaryKeyFields().stream()
-                  .map(f -> f.getName())
-                  .collect(Collectors.joining(","));
-          task.step("Found duplicate Key (" + keyFields + ")=(" + keyValue + ")").error();
-        } else {
-          keys.add(keyValue);
+      if (pipelined) {
+        List<Column> columns = getConvertibleColumns();
+        try (PipelinedRowIterator rows =
+            new PipelinedRowIterator(
+                iterator,
+                row -> convert(row, columns),
+                table.getName(),
+                BATCH_SIZE,
+                PIPELINE_DEPTH)) {
+          importRows(rows);
         }
-        task.setIndex(task.getIndex());
-      }
-      if (duplicates.size() > 0) {
-        task.completeWithError(
-            "Duplicate keys found in table " + metadata.getTableName() + ": " + duplicates);
+      } else {
+        importRows(iterator);
       }
     }
-  }
-
-  /** executes the import */
-  private static class ImportRowProcesssor implements RowProcessor {
-    private final Table table;
-    private final Task task;
-
-    public ImportRowProcesssor(Table table, Task task) {
-      this.table = table;
-      this.task = task;
-    }
 
-    @Override
-    public void process(Iterator<Row> iterator) {
+    private void importRows(Iterator<Row> iterator) {
+      List<String> keyNames =
+          table.getMetadata().getPrimaryKeyFields().stream()
+              .map(Field::getName)
+              .collect(Collectors.toList());
+      CompactKeySet keys = new CompactKeySet();
+      Set<String> duplicates = new LinkedHashSet<>();
 
       task.setIndex(0);
       int index = 0;
       List<Row> batch = new ArrayList<>();
       while (iterator.hasNext()) {
-        batch.add(iterator.next());
+        Row row = iterator.next();
         index++;
-        if (batch.size() >= 1000) {
-          table.save(batch);
-          task.setIndex(index);
-          task.setDescription("Imported " + task.getIndex() + " rows into " + table.getName());
-          batch.clear();
+        if (!keyNames.isEmpty() && !keys.add(getKey(row, keyNames, '\u001f'))) {
+          String keyValue = getKey(row, keyNames, ',');
+          duplicates.add(keyValue);
+          task.step(
+                  "Found duplicate Key (" + String.join(",", keyNames) + ")=(" + keyValue + ")")
+              .error();
+        }
+        if (duplicates.isEmpty()) {
+          batch.add(row);
+          if (batch.size() >= BATCH_SIZE) {
+            table.save(batch);
+            task.setIndex(index);
+            task.setDescription("Imported " + task.getIndex() + " rows into " + table.getName());
+            batch.clear();
+          }
         }
       }
+      if (!duplicates.isEmpty()) {
+        task.completeWithError(
+            "Duplicate keys found in table " + table.getName() + ": " + duplicates);
+      }
       // remaining
       if (!batch.isEmpty()) {
         table.save(batch);
@@ -119,5 +123,40 @@ public class ImportTableTask extends Task {
         task.setDescription("Imported " + task.getIndex() + " rows into " + table.getName());
       }
     }
+
+    /** columns of which the values can be converted to their java type ahead of saving */
+    private List<Column> getConvertibleColumns() {
+      return table.getMetadata().getColumns().stream()
+          .filter(
+              c ->
+                  !c.isReference()
+                  && c.getComputed() == null
+                  && !Set.of(FILE, STRING, TEXT, CONSTANT).contains(c.getColumnType()))
+          .collect(Collectors.toList());
+    }
+
+    /** on conversion errors the value is left as is, so saving reports the usual error */
+    private static void convert(Row row, List<Column> columns) {
+      for (Column c : columns) {
+        if (row.notNull(c.getName())) {
+          try {
+            row.set(c.getName(), row.get(c));
+          } catch (RuntimeException e) {
+            // keep original value
+          }
+        }
+      }
+    }
+
+    private static String getKey(Row row, List<String> keyNames, char separator) {
+      StringBuilder key = new StringBuilder();
+      for (int i = 0; i < keyNames.size(); i++) {
+        if (i > 0) {
+          key.append(separator);
+        }
+        key.append(row.getString(keyNames.get(i)));
+      }
+      return key.toString();
+    }
   }
 }
@@ -5,7 +5,11 @@ import static org.molgenis.emx2.io.emx2.Emx2Members.outputRoles;
 import static org.molgenis.emx2.io.emx2.Emx2Settings.outputSettings;
 import static org.molgenis.emx2.io.emx2.Emx2Tables.outputTable;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import org.molgenis.emx2.MolgenisException;
 import org.molgenis.emx2.Schema;
 import org.molgenis.emx2.Table;
 import org.molgenis.emx2.io.emx1.Emx1;
@@ -36,15 +40,49 @@ public class MolgenisIO {
   }
 
   public static void toZipFile(Path zipFile, Schema schema) {
-    outputAll(new TableStoreForCsvInZipFile(zipFile), schema);
+    try (OutputStream out = Files.newOutputStream(zipFile)) {
+      toZipStream(out, schema);
+    } catch (IOException ioe) {
+      throw new MolgenisException("Export failed", ioe);
+    }
+  }
+
+  /** writes zip directly into the stream; the stream is not closed */
+  public static void toZipStream(OutputStream outputStream, Schema schema) throws IOException {
+    try (TableStoreForCsvInZipStream store = new TableStoreForCsvInZipStream(outputStream)) {
+      outputAll(store, schema);
+    }
   }
 
   public static void toExcelFile(Path excelFile, Schema schema) {
-    outputAll(new TableStoreForXlsxFile(excelFile), schema);
+    try (OutputStream out = Files.newOutputStream(excelFile)) {
+      toExcelStream(out, schema);
+    } catch (IOException ioe) {
+      throw new MolgenisException("Export failed", ioe);
+    }
+  }
+
+  /** writes xlsx directly into the stream; the stream is not closed */
+  public static void toExcelStream(OutputStream outputStream, Schema schema) throws IOException {
+    try (TableStoreForXlsxStream store = new TableStoreForXlsxStream(outputStream)) {
+      outputAll(store, schema);
+    }
   }
 
   public static void toEmx1ExcelFile(Path excelFile, Schema schema) {
-    executeEmx1Export(new TableStoreForXlsxFile(excelFile), schema);
+    try (OutputStream out = Files.newOutputStream(excelFile)) {
+      toEmx1ExcelStream(out, schema);
+    } catch (IOException ioe) {
+      throw new MolgenisException("Export failed", ioe);
+    }
+  }
+
+  /** writes emx1 xlsx directly into the stream; the stream is not closed */
+  public static void toEmx1ExcelStream(OutputStream outputStream, Schema schema)
+      throws IOException {
+    try (TableStoreForXlsxStream store = new TableStoreForXlsxStream(outputStream)) {
+      executeEmx1Export(store, schema);
+    }
   }
 
   private static void executeEmx1Export(TableStore store, Schema schema) {
@@ -58,11 +96,33 @@ public class MolgenisIO {
   }
 
   public static void toZipFile(Path zipFile, Table table) {
-    outputTable(new TableStoreForCsvInZipFile(zipFile), table);
+    try (OutputStream out = Files.newOutputStream(zipFile)) {
+      toZipStream(out, table);
+    } catch (IOException ioe) {
+      throw new MolgenisException("Export failed", ioe);
+    }
+  }
+
+  /** writes zip directly into the stream; the stream is not closed */
+  public static void toZipStream(OutputStream outputStream, Table table) throws IOException {
+    try (TableStoreForCsvInZipStream store = new TableStoreForCsvInZipStream(outputStream)) {
+      outputTable(store, table);
+    }
   }
 
   public static void toExcelFile(Path excelFile, Table table) {
-    outputTable(new TableStoreForXlsxFile(excelFile), table);
+    try (OutputStream out = Files.newOutputStream(excelFile)) {
+      toExcelStream(out, table);
+    } catch (IOException ioe) {
+      throw new MolgenisException("Export failed", ioe);
+    }
+  }
+
+  /** writes xlsx directly into the stream; the stream is not closed */
+  public static void toExcelStream(OutputStream outputStream, Table table) throws IOException {
+    try (TableStoreForXlsxStream store = new TableStoreForXlsxStream(outputStream)) {
+      outputTable(store, table);
+    }
   }
 
   public static void toCsvFile(Path csvFile, Table table) {
@@ -0,0 +1,121 @@
+package org.molgenis.emx2.io;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.molgenis.emx2.MolgenisException;
+import org.molgenis.emx2.Row;
+
+/**
+ * Reads rows from the source iterator on a separate parser thread, so parsing overlaps with
+ * whatever the consuming thread does with the rows (typically saving them in the database). Rows
+ * are handed over in batches via a bounded queue, so the parser can run at most 'depth' batches
+ * ahead, which limits memory use. Errors of the parser are rethrown on the consuming thread at the
+ * position they occurred.
+ */
+class PipelinedRowIterator implements Iterator<Row>, AutoCloseable {
+  private static final List<Row> END_OF_ROWS = new ArrayList<>();
+  private final BlockingQueue<List<Row>> queue;
+  private final Thread parser;
+  private volatile boolean closed = false;
+  private volatile Throwable error;
+  private Iterator<Row> current = Collections.emptyIterator();
+  private boolean done = false;
+
+  /**
+   * @param prepare is called on each row on the parser thread, e.g. to convert values
+   */
+  PipelinedRowIterator(
+      Iterator<Row> source, Consumer<Row> prepare, String name, int batchSize, int depth) {
+    this.queue = new ArrayBlockingQueue<>(depth);
+    this.parser =
+        new Thread(
+            () -> {
+              try {
+                List<Row> batch = new ArrayList<>(batchSize);
+                while (!closed && source.hasNext()) {
+                  Row row = source.next();
+                  prepare.accept(row);
+                  batch.add(row);
+                  if (batch.size() >= batchSize) {
+                    put(batch);
+                    batch = new ArrayList<>(batchSize);
+                  }
+                }
+                if (!batch.isEmpty()) {
+                  put(batch);
+                }
+              } catch (InterruptedException e) {
+                error = new MolgenisException("Import interrupted", e);
+                Thread.currentThread().interrupt();
+              } catch (Throwable e) { // NOSONAR also errors, otherwise we end as if complete
+                error = e;
+              } finally {
+                try {
+                  put(END_OF_ROWS);
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                }
+              }
+            },
+            "import-parser-" + name);
+    this.parser.setDaemon(true);
+    this.parser.start();
+  }
+
+  private void put(List<Row> batch) throws InterruptedException {
+    while (!closed) {
+      if (queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+        return;
+      }
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (!current.hasNext() && !done) {
+      List<Row> batch;
+      try {
+        batch = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new MolgenisException("Import interrupted", e);
+      }
+      if (batch == END_OF_ROWS) {
+        done = true;
+        if (error instanceof RuntimeException) {
+          throw (RuntimeException) error;
+        } else if (error instanceof Error) {
+          throw (Error) error;
+        } else if (error != null) {
+          throw new MolgenisException("Import failed", (Exception) error);
+        }
+      } else {
+        current = batch.iterator();
+      }
+    }
+    return current.hasNext();
+  }
+
+  @Override
+  public Row next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return current.next();
+  }
+
+  /** stops the parser thread, e.g. when the consumer failed halfway */
+  @Override
+  public void close() {
+    closed = true;
+    queue.clear();
+    try {
+      parser.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -1,42 +1,37 @@
 package org.molgenis.emx2.io.emx2;
 
 import static org.molgenis.emx2.ColumnType.FILE;
-import static org.molgenis.emx2.FilterBean.f;
 import static org.molgenis.emx2.SelectColumn.s;
 
-import java.util.List;
+import java.util.stream.Stream;
 import org.molgenis.emx2.Column;
-import org.molgenis.emx2.Operator;
 import org.molgenis.emx2.Row;
 import org.molgenis.emx2.Table;
-import org.molgenis.emx2.io.tablestore.TableStoreForCsvInZipFile;
+import org.molgenis.emx2.io.tablestore.TableAndFileStore;
 
 public class Emx2Files {
-  public static void outputFiles(TableStoreForCsvInZipFile store, Table table) {
+  // files can be large, so only fetch a few at a time from the cursor
+  private static final int FILE_FETCH_SIZE = 10;
+
+  public static void outputFiles(TableAndFileStore store, Table table) {
     for (Column c : table.getMetadata().getColumns()) {
       if (c.getColumnType().equals(FILE)) {
-        // query the identifiers of this, and then retrieve (slow, but scalable) and write
-        List<Row> rows = table.select(s(c.getName())).retrieveRows();
-        for (Row r : rows) {
-          if (r.notNull(c.getName())) {
-
-            // get the files one by one
-            List<Row> fileRows =
-                table
-                    .select(s(c.getName(), s("id"), s("contents"), s("mimetype"), s("extension")))
-                    .where(f(c.getName(), Operator.EQUALS, r.getString(c.getName())))
-                    .retrieveRows();
-
-            // only one row
-            for (Row f : fileRows) {
-              store.writeFile(
-                  "_files/"
-                      + f.getString(c.getName())
-                      + "."
-                      + f.getString(c.getName() + "_extension"),
-                  f.getBinary(c.getName() + "_contents"));
-            }
-          }
+        // stream the files one by one and write them as we go
+        try (Stream<Row> fileRows =
+            table
+                .select(s(c.getName(), s("id"), s("contents"), s("mimetype"), s("extension")))
+                .fetchSize(FILE_FETCH_SIZE)
+                .retrieveRowStream()) {
+          fileRows
+              .filter(f -> f.notNull(c.getName()))
+              .forEach(
+                  f ->
+                      store.writeFile(
+                          "_files/"
+                              + f.getString(c.getName())
+                              + "."
+                              + f.getString(c.getName() + "_extension"),
+                          f.getBinary(c.getName() + "_contents")));
         }
       }
     }
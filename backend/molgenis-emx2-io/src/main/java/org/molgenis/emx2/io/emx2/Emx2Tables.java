@@ -5,9 +5,11 @@ import static org.molgenis.emx2.FilterBean.f;
 import static org.molgenis.emx2.SelectColumn.s;
 
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.molgenis.emx2.*;
 import org.molgenis.emx2.io.tablestore.TableStore;
-import org.molgenis.emx2.io.tablestore.TableStoreForCsvInZipFile;
+import org.molgenis.emx2.io.tablestore.TableAndFileStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,32 +21,26 @@ public class Emx2Tables {
   }
 
   public static void outputTable(TableStore store, Table table) {
-    SelectColumn[] select =
+    List<String> columnNames =
         table.getMetadata().getDownloadColumnNames().stream()
             .map(c -> c.getName())
             .filter(n -> !n.startsWith("mg_"))
-            .map(c -> s(c))
-            .toArray(SelectColumn[]::new);
+            .collect(Collectors.toList());
+    SelectColumn[] select = columnNames.stream().map(c -> s(c)).toArray(SelectColumn[]::new);
 
+    Query query = table.query().select(select);
     if (table.getMetadata().getColumnNames().contains(MG_TABLECLASS)) {
-      store.writeTable(
-          table.getName(),
-          table
-              .query()
-              .select(select)
-              .where(
-                  f(
-                      MG_TABLECLASS,
-                      Operator.EQUALS,
-                      table.getSchema().getName() + "." + table.getName()))
-              .retrieveRows());
-    } else {
-      store.writeTable(table.getName(), table.select(select).retrieveRows());
+      query.where(
+          f(MG_TABLECLASS, Operator.EQUALS, table.getSchema().getName() + "." + table.getName()));
+    }
+    // stream from cursor so large tables are not loaded in memory
+    try (Stream<Row> rows = query.retrieveRowStream()) {
+      store.writeTable(table.getName(), columnNames, rows::iterator);
     }
 
     // in case of zip file we include the attached files
-    if (store instanceof TableStoreForCsvInZipFile) {
-      Emx2Files.outputFiles((TableStoreForCsvInZipFile) store, table);
+    if (store instanceof TableAndFileStore) {
+      Emx2Files.outputFiles((TableAndFileStore) store, table);
     }
   }
 
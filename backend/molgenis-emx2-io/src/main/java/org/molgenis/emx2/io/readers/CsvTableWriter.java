@@ -38,4 +38,56 @@ public class CsvTableWriter {
       csvWriter.append(values);
     }
   }
+
+  /**
+   * single pass variant for streaming, taking the columns from the first row, so the columns are
+   * the same as of write(Iterable, Writer, Character)
+   */
+  public static void write(Iterator<Row> rows, Writer writer, Character seperator)
+      throws IOException {
+    Row first = rows.hasNext() ? rows.next() : null;
+    List<String> columnNames = new ArrayList<>();
+    if (first != null) {
+      for (String name : first.getColumnNames()) {
+        // we filter mg_ columns. TODO make option to choose
+        if (!name.startsWith("mg_")) {
+          columnNames.add(name);
+        }
+      }
+    }
+    CsvWriter<Map> csvWriter =
+        CsvWriter.from(Map.class)
+            .columns(columnNames.toArray(new String[columnNames.size()]))
+            .separator(seperator)
+            .to(writer);
+    Row r = first;
+    while (r != null) {
+      Map<String, String> values = new LinkedHashMap<>();
+      for (String columnName : columnNames) {
+        values.put(columnName, r.getString(columnName));
+      }
+      csvWriter.append(values);
+      r = rows.hasNext() ? rows.next() : null;
+    }
+    writer.flush();
+  }
+
+  /** single pass variant for when the columns are known up front, e.g. when streaming */
+  public static void write(
+      Iterable<Row> rows, List<String> columnNames, Writer writer, Character seperator)
+      throws IOException {
+    CsvWriter<Map> csvWriter =
+        CsvWriter.from(Map.class)
+            .columns(columnNames.toArray(new String[columnNames.size()]))
+            .separator(seperator)
+            .to(writer);
+    for (Row r : rows) {
+      Map<String, String> values = new LinkedHashMap<>();
+      for (String columnName : columnNames) {
+        values.put(columnName, r.getString(columnName));
+      }
+      csvWriter.append(values);
+    }
+    writer.flush();
+  }
 }
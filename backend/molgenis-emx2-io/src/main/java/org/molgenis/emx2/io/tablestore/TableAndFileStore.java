@@ -0,0 +1,7 @@
+package org.molgenis.emx2.io.tablestore;
+
+/** table store that can also hold attached files, e.g. under '_files/' in a zip */
+public interface TableAndFileStore extends TableStore {
+
+  void writeFile(String filePath, byte[] contents);
+}
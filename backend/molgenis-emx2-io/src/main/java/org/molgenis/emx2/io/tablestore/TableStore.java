@@ -1,12 +1,24 @@
 package org.molgenis.emx2.io.tablestore;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import org.molgenis.emx2.Row;
 
 public interface TableStore {
 
   void writeTable(String name, Iterable<Row> rows);
 
+  /**
+   * write with the column names known up front, so stores can write in a single pass, e.g. from a
+   * database cursor. Default collects the rows first.
+   */
+  default void writeTable(String name, List<String> columnNames, Iterable<Row> rows) {
+    List<Row> list = new ArrayList<>();
+    rows.forEach(list::add);
+    writeTable(name, list);
+  }
+
   Iterable<Row> readTable(String name);
 
   void processTable(String name, RowProcessor processor);
@@ -30,6 +30,15 @@ public class TableStoreForCsvFile implements TableStore {
     }
   }
 
+  @Override
+  public void writeTable(String name, List<String> columnNames, Iterable<Row> rows) {
+    try (Writer writer = Files.newBufferedWriter(csvFile)) {
+      CsvTableWriter.write(rows, columnNames, writer, ',');
+    } catch (IOException ioe) {
+      throw new MolgenisException("Export failed", ioe);
+    }
+  }
+
   @Override
   public Iterable<Row> readTable(String name) {
     try {
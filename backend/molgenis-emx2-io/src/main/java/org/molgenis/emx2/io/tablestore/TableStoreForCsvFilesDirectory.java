@@ -42,6 +42,16 @@ public class TableStoreForCsvFilesDirectory implements TableStore {
     }
   }
 
+  @Override
+  public void writeTable(String name, List<String> columnNames, Iterable<Row> rows) {
+    Path relativePath = directoryPath.resolve(name + CSV_EXTENSION);
+    try (Writer writer = Files.newBufferedWriter(relativePath)) {
+      CsvTableWriter.write(rows, columnNames, writer, separator);
+    } catch (IOException ioe) {
+      throw new MolgenisException("Export failed", ioe);
+    }
+  }
+
   @Override
   public List<Row> readTable(String name) {
     Path relativePath = directoryPath.resolve(name + CSV_EXTENSION);
@@ -16,7 +16,7 @@ import org.molgenis.emx2.Row;
 import org.molgenis.emx2.io.readers.CsvTableReader;
 import org.molgenis.emx2.io.readers.CsvTableWriter;
 
-public class TableStoreForCsvInZipFile implements TableStore {
+public class TableStoreForCsvInZipFile implements TableAndFileStore {
   static final String CSV_EXTENSION = ".csv";
   static final String TSV_EXTENSION = ".tsv";
   private final Path zipFilePath;
@@ -46,6 +46,7 @@ public class TableStoreForCsvInZipFile implements TableStore {
     return FileSystems.newFileSystem(zipUri, env, null);
   }
 
+  @Override
   public void writeFile(String filePath, byte[] contents) {
     if (contents != null && contents.length > 0) {
       try (FileSystem zipfs = open()) {
@@ -80,6 +81,20 @@ public class TableStoreForCsvInZipFile implements TableStore {
     }
   }
 
+  @Override
+  public void writeTable(String name, List<String> columnNames, Iterable<Row> rows) {
+    if (!Files.exists(zipFilePath)) {
+      create();
+    }
+    try (FileSystem zipfs = open();
+        Writer writer =
+            Files.newBufferedWriter(zipfs.getPath(File.separator + name + CSV_EXTENSION))) {
+      CsvTableWriter.write(rows, columnNames, writer, comma);
+    } catch (IOException ioe) {
+      throw new MolgenisException("Export failed", ioe);
+    }
+  }
+
   @Override
   public void processTable(String name, RowProcessor processor) {
     try (ZipFile zf = new ZipFile(zipFilePath.toFile())) {
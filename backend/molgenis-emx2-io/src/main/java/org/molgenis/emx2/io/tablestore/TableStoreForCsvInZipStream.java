@@ -0,0 +1,91 @@
+package org.molgenis.emx2.io.tablestore;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.molgenis.emx2.MolgenisException;
+import org.molgenis.emx2.Row;
+import org.molgenis.emx2.io.readers.CsvTableWriter;
+
+/**
+ * Write-only store that writes a csv zip directly into an output stream, e.g. a http response. Each
+ * table and file becomes a zip entry as it is written, so nothing is buffered besides the current
+ * entry. Call close() to write the zip directory; the underlying stream is left open.
+ */
+public class TableStoreForCsvInZipStream implements TableAndFileStore, Closeable {
+  private static final Character comma = ',';
+  private final ZipOutputStream zip;
+  private final Writer writer;
+
+  public TableStoreForCsvInZipStream(OutputStream outputStream) {
+    this.zip = new ZipOutputStream(new BufferedOutputStream(outputStream));
+    // entries are closed via the zip, so never close this writer
+    this.writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public void writeTable(String name, Iterable<Row> rows) {
+    try {
+      zip.putNextEntry(new ZipEntry(name + TableStoreForCsvInZipFile.CSV_EXTENSION));
+      CsvTableWriter.write(rows, writer, comma);
+      writer.flush();
+      zip.closeEntry();
+    } catch (IOException ioe) {
+      throw new MolgenisException("Export failed", ioe);
+    }
+  }
+
+  @Override
+  public void writeTable(String name, List<String> columnNames, Iterable<Row> rows) {
+    try {
+      zip.putNextEntry(new ZipEntry(name + TableStoreForCsvInZipFile.CSV_EXTENSION));
+      CsvTableWriter.write(rows, columnNames, writer, comma);
+      writer.flush();
+      zip.closeEntry();
+    } catch (IOException ioe) {
+      throw new MolgenisException("Export failed", ioe);
+    }
+  }
+
+  @Override
+  public void writeFile(String filePath, byte[] contents) {
+    if (contents != null && contents.length > 0) {
+      try {
+        zip.putNextEntry(new ZipEntry(filePath));
+        zip.write(contents);
+        zip.closeEntry();
+      } catch (IOException ioe) {
+        throw new MolgenisException("File export failed", ioe);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    zip.finish();
+    zip.flush();
+  }
+
+  @Override
+  public Iterable<Row> readTable(String name) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void processTable(String name, RowProcessor processor) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean containsTable(String name) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Collection<String> tableNames() {
+    throw new UnsupportedOperationException();
+  }
+}
@@ -8,29 +8,53 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.molgenis.emx2.MolgenisException;
 import org.molgenis.emx2.Row;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** Now caches all data. Might want to change to SAX parser for XLSX. */
+/**
+ * Reads xlsx sheet by sheet using a streaming parser so files of any size can be imported. Writing
+ * uses SXSSF.
+ */
 public class TableStoreForXlsxFile implements TableStore {
+  private static final int SHARED_STRINGS_CACHE_SIZE = 10000;
   private Path excelFilePath;
-  private Map<String, List<Row>> cache;
   private static Logger logger = LoggerFactory.getLogger(TableStoreForXlsxFile.class);
 
   public TableStoreForXlsxFile(Path excelFilePath) {
     this.excelFilePath = excelFilePath;
   }
 
+  /** only reads the workbook index, not the sheets */
   @Override
   public Collection<String> tableNames() {
-    if (this.cache == null) {
-      this.cache();
+    List<String> result = new ArrayList<>();
+    OPCPackage pkg = null;
+    try {
+      pkg = OPCPackage.open(excelFilePath.toFile(), PackageAccess.READ);
+      XSSFReader.SheetIterator sheets =
+          (XSSFReader.SheetIterator) new XSSFReader(pkg).getSheetsData();
+      while (sheets.hasNext()) {
+        try (InputStream ignored = sheets.next()) {
+          result.add(sheets.getSheetName());
+        }
+      }
+    } catch (IOException | OpenXML4JException e) {
+      throw new MolgenisException("Import failed: cannot read sheet names from Excel file", e);
+    } finally {
+      // read only, so revert instead of close
+      if (pkg != null) {
+        pkg.revert();
+      }
     }
-    return this.cache.keySet();
+    return result;
   }
 
   @Override
@@ -54,7 +78,6 @@ public class TableStoreForXlsxFile implements TableStore {
         try (FileOutputStream outputStream = new FileOutputStream(excelFilePath.toFile())) {
           wb.write(outputStream);
         } finally {
-          this.cache = null;
           wb.close();
         }
       }
@@ -64,110 +87,144 @@ public class TableStoreForXlsxFile implements TableStore {
   }
 
   private void writeRowsToSheet(String name, Iterable<Row> rows, Workbook wb) {
-
     // get the row columns
     Set<String> columnNames = new LinkedHashSet<>();
     for (Row row : rows) {
       columnNames.addAll(row.getColumnNames());
     }
+    writeRowsToSheet(name, new ArrayList<>(columnNames), rows, wb);
+  }
 
-    // create the sheet
+  /** single pass over the rows, so these can come from a cursor */
+  static void writeRowsToSheet(
+      String name, List<String> columnNames, Iterable<Row> rows, Workbook wb) {
     Sheet sheet = wb.createSheet(name);
-    Map<String, Integer> columnNameIndexMap = new LinkedHashMap<>();
-    int rowNum = 0;
+
+    // write a header row
+    org.apache.poi.ss.usermodel.Row headerRow = sheet.createRow(0);
+    for (int i = 0; i < columnNames.size(); i++) {
+      headerRow.createCell(i).setCellValue(columnNames.get(i));
+    }
 
     // write the data
+    int rowNum = 1;
     for (Row row : rows) {
-      // create header row
-      if (rowNum == 0) {
-        int columnIndex = 0;
-        // define the column indexes
-        for (String columnName : columnNames) {
-          columnNameIndexMap.put(columnName, columnIndex++);
-        }
-        // write a header row
-        org.apache.poi.ss.usermodel.Row excelRow = sheet.createRow(rowNum);
-        for (Map.Entry<String, Integer> entry : columnNameIndexMap.entrySet()) {
-          excelRow.createCell(entry.getValue()).setCellValue(entry.getKey());
-        }
-        rowNum++;
+      org.apache.poi.ss.usermodel.Row excelRow = sheet.createRow(rowNum++);
+      for (int i = 0; i < columnNames.size(); i++) {
+        excelRow.createCell(i).setCellValue(row.getString(columnNames.get(i)));
       }
-      // write a contents row
-      org.apache.poi.ss.usermodel.Row excelRow = sheet.createRow(rowNum);
-      for (Map.Entry<String, Integer> entry : columnNameIndexMap.entrySet()) {
-        excelRow.createCell(entry.getValue()).setCellValue(row.getString(entry.getKey()));
-      }
-      rowNum++;
     }
   }
 
-  private void cache() {
+  private static boolean notEmptyLine(Row row) {
+    for (String name : row.getColumnNames()) {
+      if (row.notNull(name)) return true;
+    }
+    return false;
+  }
+
+  /** reads a whole sheet into memory; use processTable to stream large sheets */
+  @Override
+  public List<Row> readTable(String name) {
+    List<Row> result = new ArrayList<>();
+    processTable(name, iterator -> iterator.forEachRemaining(result::add));
+    return result;
+  }
+
+  /** streams the sheet, keeping only a small window of rows in memory */
+  @Override
+  public void processTable(String name, RowProcessor processor) {
     long start = System.currentTimeMillis();
-    try (InputStream is = new FileInputStream(excelFilePath.toFile());
-        Workbook workbook = StreamingReader.builder().rowCacheSize(100).bufferSize(4096).open(is)) {
-      this.cache = new LinkedHashMap<>();
-      for (Sheet sheet : workbook) {
-        String sheetName = sheet.getSheetName();
-        List<Row> result = new ArrayList<>();
-        Map<Integer, String> columnNames = null;
-        for (org.apache.poi.ss.usermodel.Row excelRow : sheet) {
-          // first non-empty row is column names
-          if (columnNames == null) {
-            columnNames = new LinkedHashMap<>();
-            for (Cell cell : excelRow) {
-              if (!BLANK.equals(cell.getCellType())) {
-                String value = cell.getStringCellValue();
-                if (value != null) {
-                  value = value.trim();
-                }
-                columnNames.put(cell.getColumnIndex(), value);
-              }
-            }
-          }
-          // otherwise it is a normal row to be added to result
-          else {
-            Row row = convertRow(sheetName, columnNames, excelRow);
-            // ignore empty lines
-            if (notEmptyLine(row)) {
-              result.add(row);
-            }
-          }
-          this.cache.put(sheetName, result);
+    // open the file itself, a stream would first be copied to a temp file for every sheet, and
+    // keep the shared strings on disk, else all strings of the workbook are loaded into memory
+    try (Workbook workbook =
+        StreamingReader.builder()
+            .rowCacheSize(100)
+            .bufferSize(4096)
+            .sstCacheSize(SHARED_STRINGS_CACHE_SIZE)
+            .open(excelFilePath.toFile())) {
+      Sheet sheet = null;
+      for (Sheet s : workbook) {
+        if (s.getSheetName().equals(name)) {
+          sheet = s;
+          break;
         }
       }
+      if (sheet == null) {
+        throw new MolgenisException(
+            "Import failed: Table with name " + name + " not found in Excel file");
+      }
+      processor.process(new SheetRowIterator(name, sheet.iterator()));
     } catch (IOException ioe) {
       throw new MolgenisException("Import failed", ioe);
     }
     if (logger.isInfoEnabled()) {
-      logger.info("Excel file loaded into memory in {}ms", (System.currentTimeMillis() - start));
+      logger.info("Excel sheet {} processed in {}ms", name, (System.currentTimeMillis() - start));
     }
   }
 
-  private static boolean notEmptyLine(Row row) {
-    for (String name : row.getColumnNames()) {
-      if (row.notNull(name)) return true;
+  /** converts excel rows into rows lazily; first row is the header, empty lines are skipped */
+  private static class SheetRowIterator implements Iterator<Row> {
+    private final String sheetName;
+    private final Iterator<org.apache.poi.ss.usermodel.Row> excelRows;
+    private Map<Integer, String> columnNames;
+    private Row next;
+
+    SheetRowIterator(String sheetName, Iterator<org.apache.poi.ss.usermodel.Row> excelRows) {
+      this.sheetName = sheetName;
+      this.excelRows = excelRows;
     }
-    return false;
-  }
 
-  @Override
-  public List<Row> readTable(String name) {
-    if (this.cache == null) {
-      this.cache();
+    @Override
+    public boolean hasNext() {
+      if (next == null) {
+        next = advance();
+      }
+      return next != null;
     }
-    if (!this.cache.containsKey(name)) {
-      throw new MolgenisException(
-          "Import failed: Table with name " + name + " not found in Excel file");
+
+    @Override
+    public Row next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Row result = next;
+      next = null;
+      return result;
     }
-    return this.cache.get(name);
-  }
 
-  @Override
-  public void processTable(String name, RowProcessor processor) {
-    processor.process(readTable(name).iterator());
+    private Row advance() {
+      while (excelRows.hasNext()) {
+        org.apache.poi.ss.usermodel.Row excelRow = excelRows.next();
+        // first non-empty row is column names
+        if (columnNames == null) {
+          columnNames = new LinkedHashMap<>();
+          for (Cell cell : excelRow) {
+            if (!BLANK.equals(cell.getCellType())) {
+              String value = cell.getStringCellValue();
+              if (value != null) {
+                value = value.trim();
+              }
+              columnNames.put(cell.getColumnIndex(), value);
+            }
+          }
+        } else {
+          try {
+            Row row = convertRow(sheetName, columnNames, excelRow);
+            // ignore empty lines
+            if (notEmptyLine(row)) {
+              return row;
+            }
+          } catch (IOException ioe) {
+            throw new MolgenisException("Import failed", ioe);
+          }
+        }
+      }
+      return null;
+    }
   }
 
-  private Row convertRow(
+  private static Row convertRow(
       String name, Map<Integer, String> columnNames, org.apache.poi.ss.usermodel.Row excelRow)
       throws IOException {
     Row row = new Row();
@@ -193,7 +250,7 @@ public class TableStoreForXlsxFile implements TableStore {
     return row;
   }
 
-  private void convertCellToRowValue(Row row, Cell cell, CellType cellType, String colName) {
+  private static void convertCellToRowValue(Row row, Cell cell, CellType cellType, String colName) {
     switch (cellType) {
       case BLANK:
         row.set(colName, null);
@@ -219,9 +276,6 @@ public class TableStoreForXlsxFile implements TableStore {
 
   @Override
   public boolean containsTable(String name) {
-    if (this.cache == null) {
-      this.cache();
-    }
-    return this.cache.containsKey(name);
+    return tableNames().contains(name);
   }
 }
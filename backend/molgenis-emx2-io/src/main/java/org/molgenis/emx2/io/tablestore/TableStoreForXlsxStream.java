@@ -0,0 +1,80 @@
+package org.molgenis.emx2.io.tablestore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.molgenis.emx2.MolgenisException;
+import org.molgenis.emx2.Row;
+
+/**
+ * Write-only export session that keeps one SXSSF workbook open across all writeTable calls, so
+ * only a window of rows per sheet is kept in memory. close() writes the finished workbook into the
+ * output stream, which is left open.
+ */
+public class TableStoreForXlsxStream implements TableStore, Closeable {
+  private static final int ROW_WINDOW = 100;
+  private final OutputStream outputStream;
+  private final SXSSFWorkbook workbook;
+
+  public TableStoreForXlsxStream(OutputStream outputStream) {
+    this.outputStream = outputStream;
+    this.workbook = new SXSSFWorkbook(ROW_WINDOW);
+    this.workbook.setCompressTempFiles(true);
+  }
+
+  @Override
+  public void writeTable(String name, Iterable<Row> rows) {
+    Set<String> columnNames = new LinkedHashSet<>();
+    for (Row row : rows) {
+      columnNames.addAll(row.getColumnNames());
+    }
+    writeTable(name, new ArrayList<>(columnNames), rows);
+  }
+
+  @Override
+  public void writeTable(String name, List<String> columnNames, Iterable<Row> rows) {
+    if (name.length() > 30) {
+      throw new MolgenisException(
+          "Export failed: Excel sheet name '" + name + "' is too long. Maximum 30 characters");
+    }
+    TableStoreForXlsxFile.writeRowsToSheet(name, columnNames, rows, workbook);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      workbook.write(outputStream);
+      outputStream.flush();
+    } finally {
+      // removes the temporary files backing the sheets
+      workbook.dispose();
+      workbook.close();
+    }
+  }
+
+  @Override
+  public Iterable<Row> readTable(String name) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void processTable(String name, RowProcessor processor) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean containsTable(String name) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Collection<String> tableNames() {
+    throw new UnsupportedOperationException();
+  }
+}
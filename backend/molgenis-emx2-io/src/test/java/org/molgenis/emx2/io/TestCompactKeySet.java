@@ -0,0 +1,34 @@
+package org.molgenis.emx2.io;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+public class TestCompactKeySet {
+
+  @Test
+  public void testSameResultAsHashSet() {
+    CompactKeySet keys = new CompactKeySet(4); // small, to force rehashes
+    Set<String> expected = new HashSet<>();
+    Random random = new Random(1);
+    for (int i = 0; i < 200000; i++) {
+      String key = "key" + random.nextInt(150000) + ",\u00e9";
+      assertEquals(expected.add(key), keys.add(key));
+    }
+    assertEquals(expected.size(), keys.size());
+  }
+
+  @Test
+  public void testEmptyAndPrefixKeys() {
+    CompactKeySet keys = new CompactKeySet();
+    assertTrue(keys.add(""));
+    assertFalse(keys.add(""));
+    assertTrue(keys.add("a"));
+    assertTrue(keys.add("ab"));
+    assertFalse(keys.add("ab"));
+    assertEquals(3, keys.size());
+  }
+}
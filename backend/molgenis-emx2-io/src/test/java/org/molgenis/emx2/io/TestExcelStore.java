@@ -1,15 +1,18 @@
 package org.molgenis.emx2.io;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 import org.molgenis.emx2.Row;
 import org.molgenis.emx2.io.tablestore.TableStoreForXlsxFile;
+import org.molgenis.emx2.io.tablestore.TableStoreForXlsxStream;
 
 public class TestExcelStore {
 
@@ -37,4 +40,57 @@ public class TestExcelStore {
 
     assertEquals(10, rows2.size());
   }
+
+  @Test
+  public void testStreamingSheets() throws IOException {
+    List<Row> rows = new ArrayList<Row>();
+    for (int i = 0; i < 1000; i++) {
+      rows.add(new Row().set("name", "test" + i).set("id", i));
+    }
+
+    Path tmp = Files.createTempDirectory("TestExcelStore");
+    tmp.toFile().deleteOnExit();
+    Path excelFile = tmp.resolve("test.xlsx");
+    TableStoreForXlsxFile store = new TableStoreForXlsxFile(excelFile);
+    store.writeTable("first", rows);
+    store.writeTable("second", rows.subList(0, 5));
+
+    store = new TableStoreForXlsxFile(excelFile);
+    assertEquals(List.of("first", "second"), new ArrayList<>(store.tableNames()));
+    assertTrue(store.containsTable("second"));
+    assertFalse(store.containsTable("third"));
+
+    AtomicInteger count = new AtomicInteger();
+    store.processTable(
+        "first",
+        iterator ->
+            iterator.forEachRemaining(
+                row -> assertEquals("test" + count.getAndIncrement(), row.getString("name"))));
+    assertEquals(1000, count.get());
+    assertEquals(5, store.readTable("second").size());
+  }
+
+  @Test
+  public void testStreamingExportSession() throws IOException {
+    List<Row> rows = new ArrayList<Row>();
+    for (int i = 0; i < 500; i++) {
+      rows.add(new Row().set("name", "test" + i).set("id", i));
+    }
+
+    // all sheets in one session, second one from a single pass iterator
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (TableStoreForXlsxStream store = new TableStoreForXlsxStream(out)) {
+      store.writeTable("first", rows);
+      store.writeTable("second", List.of("name", "id"), rows.stream()::iterator);
+    }
+
+    Path tmp = Files.createTempDirectory("TestExcelStore");
+    tmp.toFile().deleteOnExit();
+    Path excelFile = tmp.resolve("test.xlsx");
+    Files.write(excelFile, out.toByteArray());
+    TableStoreForXlsxFile store = new TableStoreForXlsxFile(excelFile);
+    assertEquals(List.of("first", "second"), new ArrayList<>(store.tableNames()));
+    assertEquals(500, store.readTable("first").size());
+    assertEquals("test499", store.readTable("second").get(499).getString("name"));
+  }
 }
@@ -0,0 +1,101 @@
+package org.molgenis.emx2.io;
+
+import static org.junit.Assert.*;
+import static org.molgenis.emx2.Row.row;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.Test;
+import org.molgenis.emx2.MolgenisException;
+import org.molgenis.emx2.Row;
+
+public class TestPipelinedRowIterator {
+
+  @Test
+  public void testOrderIsKept() {
+    List<Row> rows = new ArrayList<>();
+    IntStream.range(0, 2500).forEach(i -> rows.add(row("id", "" + i)));
+    try (PipelinedRowIterator it =
+        new PipelinedRowIterator(
+            rows.iterator(), row -> row.set("id", row.getInteger("id")), "test", 100, 2)) {
+      int count = 0;
+      while (it.hasNext()) {
+        assertEquals(Integer.valueOf(count++), it.next().getValueMap().get("id"));
+      }
+      assertEquals(2500, count);
+    }
+  }
+
+  @Test
+  public void testParseErrorIsRethrownAfterPreviousRows() {
+    Iterator<Row> failing =
+        new Iterator<>() {
+          int i = 0;
+
+          public boolean hasNext() {
+            if (i == 150) throw new MolgenisException("Error at line 150");
+            return true;
+          }
+
+          public Row next() {
+            return row("id", i++);
+          }
+        };
+    int count = 0;
+    try (PipelinedRowIterator it = new PipelinedRowIterator(failing, row -> {}, "test", 100, 2)) {
+      while (it.hasNext()) {
+        it.next();
+        count++;
+      }
+      fail("should have failed");
+    } catch (MolgenisException e) {
+      assertEquals(150, count);
+    }
+  }
+
+  @Test
+  public void testErrorIsNotMistakenForEndOfRows() {
+    Iterator<Row> failing =
+        new Iterator<>() {
+          int i = 0;
+
+          public boolean hasNext() {
+            if (i == 150) throw new StackOverflowError("Error at line 150");
+            return true;
+          }
+
+          public Row next() {
+            return row("id", i++);
+          }
+        };
+    int count = 0;
+    try (PipelinedRowIterator it = new PipelinedRowIterator(failing, row -> {}, "test", 100, 2)) {
+      while (it.hasNext()) {
+        it.next();
+        count++;
+      }
+      fail("should have failed");
+    } catch (StackOverflowError e) {
+      assertEquals(150, count);
+    }
+  }
+
+  @Test
+  public void testCloseStopsParser() {
+    Iterator<Row> endless =
+        new Iterator<>() {
+          public boolean hasNext() {
+            return true;
+          }
+
+          public Row next() {
+            return row("id", 1);
+          }
+        };
+    PipelinedRowIterator it = new PipelinedRowIterator(endless, row -> {}, "test", 10, 2);
+    it.next();
+    it.close(); // returns because the parser stops
+  }
+}
@@ -1,7 +1,9 @@
 package org.molgenis.emx2.io;
 
+import static junit.framework.TestCase.assertTrue;
 import static junit.framework.TestCase.fail;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -59,6 +61,41 @@ public class TestReadWriteStores {
           "TMP directory " + tmp + " not deleted. This should never happen.");
   }
 
+  @Test
+  public void testCsvZipStreamStore() throws IOException {
+    Path tmp = Files.createTempDirectory(null);
+    try {
+      List<Row> rows = new ArrayList<>();
+      for (int i = 1; i <= 10; i++) {
+        rows.add(new Row().setString("stringCol", "test" + i).setInt("intCol", i));
+      }
+
+      // write to stream, second table from a single pass iterator
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (TableStoreForCsvInZipStream store = new TableStoreForCsvInZipStream(out)) {
+        store.writeTable("test", rows);
+        store.writeTable("test2", List.of("stringCol", "intCol"), rows.stream()::iterator);
+        store.writeFile("_files/test.txt", "hello".getBytes());
+      }
+
+      // read back as zip file
+      Path zipFile = tmp.resolve("test.zip");
+      Files.write(zipFile, out.toByteArray());
+      TableStoreForCsvInZipFile store = new TableStoreForCsvInZipFile(zipFile);
+      CompareTools.assertEquals(
+          rows,
+          StreamSupport.stream(store.readTable("test").spliterator(), false)
+              .collect(Collectors.toList()));
+      CompareTools.assertEquals(
+          rows,
+          StreamSupport.stream(store.readTable("test2").spliterator(), false)
+              .collect(Collectors.toList()));
+      assertTrue(store.tableNames().contains("_files/test.txt"));
+    } finally {
+      Files.walk(tmp).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
   @Test
   public void testExcelStore() throws IOException {
     Path tmp = Files.createTempDirectory(null);
@@ -0,0 +1,47 @@
+package org.molgenis.emx2.sql;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.molgenis.emx2.Column;
+import org.molgenis.emx2.Row;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares SqlRowEncoder with SqlTypeUtils.getValuesAsMap for a batch of 1000 rows. Run with
+ * 'gradle :backend:molgenis-emx2-sql-it:jmh'.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowEncoderBenchmark {
+  private List<Column> columns;
+  private List<Row> rows;
+  private SqlRowEncoder encoder;
+  private Object[] values;
+
+  @Setup
+  public void setup() {
+    columns = TestRowEncoder.TABLE.getMutationColumns();
+    rows = TestRowEncoder.createRows(1000);
+    encoder = new SqlRowEncoder(columns, columns);
+    values = new Object[encoder.size()];
+  }
+
+  @Benchmark
+  public void getValuesAsMap(Blackhole blackhole) {
+    for (Row row : rows) {
+      blackhole.consume(SqlTypeUtils.getValuesAsMap(row, columns));
+    }
+  }
+
+  @Benchmark
+  public void rowEncoder(Blackhole blackhole) {
+    for (Row row : rows) {
+      blackhole.consume(encoder.encode(row, values));
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package org.molgenis.emx2.sql;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jooq.Configuration;
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListenerProvider;
+import org.jooq.impl.DefaultExecuteListener;
+import org.jooq.impl.DefaultExecuteListenerProvider;
+
+/** counts statements executed via the jooq configuration of a database */
+class StatementCounter {
+  private StatementCounter() {
+    // hide constructor
+  }
+
+  /** counts the statements containing 'sqlPart' executed during run */
+  static int count(SqlDatabase database, String sqlPart, Runnable run) {
+    AtomicInteger count = new AtomicInteger();
+    Configuration configuration = database.getJooq().configuration();
+    ExecuteListenerProvider[] original = configuration.executeListenerProviders();
+    ExecuteListenerProvider[] counting = new ExecuteListenerProvider[original.length + 1];
+    System.arraycopy(original, 0, counting, 0, original.length);
+    counting[original.length] =
+        new DefaultExecuteListenerProvider(
+            new DefaultExecuteListener() {
+              @Override
+              public void executeStart(ExecuteContext ctx) {
+                if (ctx.sql() != null && ctx.sql().contains(sqlPart)) {
+                  count.incrementAndGet();
+                }
+              }
+            });
+    configuration.set(counting);
+    try {
+      run.run();
+    } finally {
+      configuration.set(original);
+    }
+    return count.get();
+  }
+}
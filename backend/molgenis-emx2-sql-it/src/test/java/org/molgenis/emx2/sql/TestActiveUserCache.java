@@ -0,0 +1,112 @@
+package org.molgenis.emx2.sql;
+
+import static org.junit.Assert.*;
+import static org.molgenis.emx2.Column.column;
+import static org.molgenis.emx2.Constants.MG_USER_PREFIX;
+import static org.molgenis.emx2.Row.row;
+import static org.molgenis.emx2.TableMetadata.table;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.molgenis.emx2.Privileges;
+import org.molgenis.emx2.Schema;
+import org.molgenis.emx2.Table;
+
+public class TestActiveUserCache {
+  private static SqlDatabase db;
+
+  @BeforeClass
+  public static void setUp() {
+    db = (SqlDatabase) TestDatabaseFactory.getTestDatabase();
+  }
+
+  @Test
+  public void testActiveUserWithoutStatements() {
+    String user = "TestActiveUserCache";
+    db.clearActiveUser();
+    db.addUser(user);
+    Schema schema = db.dropCreateSchema(TestActiveUserCache.class.getSimpleName());
+    schema.addMember(user, Privileges.EDITOR.toString());
+    schema.create(table("Counted", column("id").setPkey()));
+
+    try {
+      db.setActiveUser(user);
+      assertEquals(user, db.getActiveUser());
+      assertEquals(MG_USER_PREFIX + user, sessionUser(db));
+
+      // getActiveUser doesn't hit the database
+      assertEquals(
+          0,
+          StatementCounter.count(
+              db,
+              "",
+              () -> {
+                for (int i = 0; i < 100; i++) {
+                  db.getActiveUser();
+                }
+              }));
+
+      // an insert used to query SESSION_USER for the batch and again for logging
+      Table table = db.getSchema(schema.getName()).getTable("Counted");
+      assertEquals(0, StatementCounter.count(db, "SESSION_USER", () -> table.insert(row("id", "a"))));
+      assertEquals(1, table.retrieveRows().size());
+
+      // stays in sync with session authorization within transactions
+      db.tx(
+          tdb -> {
+            assertEquals(user, tdb.getActiveUser());
+            assertEquals(MG_USER_PREFIX + user, sessionUser((SqlDatabase) tdb));
+            tdb.clearActiveUser();
+            assertNull(tdb.getActiveUser());
+            assertFalse(sessionUser((SqlDatabase) tdb).startsWith(MG_USER_PREFIX));
+            tdb.setActiveUser(user);
+            assertEquals(MG_USER_PREFIX + user, sessionUser((SqlDatabase) tdb));
+          });
+      assertEquals(user, db.getActiveUser());
+    } finally {
+      db.clearActiveUser();
+    }
+    assertNull(db.getActiveUser());
+    assertFalse(sessionUser(db).startsWith(MG_USER_PREFIX));
+  }
+
+  @Test
+  public void testReusedConnectionsGetTheRightAuthorization() {
+    String user1 = "TestActiveUserCache1";
+    String user2 = "TestActiveUserCache2";
+    db.clearActiveUser();
+    db.addUser(user1);
+    db.addUser(user2);
+    try {
+      for (int i = 0; i < 10; i++) {
+        db.setActiveUser(user1);
+        assertEquals(MG_USER_PREFIX + user1, sessionUser(db));
+        db.setActiveUser(user2);
+        assertEquals(MG_USER_PREFIX + user2, sessionUser(db));
+        db.clearActiveUser();
+        assertFalse(sessionUser(db).startsWith(MG_USER_PREFIX));
+      }
+
+      // authorization changed in a rolled back transaction is reapplied afterwards
+      db.setActiveUser(user1);
+      try {
+        db.tx(
+            tdb -> {
+              tdb.setActiveUser(user2);
+              throw new RuntimeException("rollback");
+            });
+        fail("should have rolled back");
+      } catch (Exception e) {
+        // expected
+      }
+      assertEquals(user1, db.getActiveUser());
+      assertEquals(MG_USER_PREFIX + user1, sessionUser(db));
+    } finally {
+      db.clearActiveUser();
+    }
+  }
+
+  private static String sessionUser(SqlDatabase database) {
+    return database.getJooq().fetchOne("SELECT SESSION_USER").get(0, String.class);
+  }
+}
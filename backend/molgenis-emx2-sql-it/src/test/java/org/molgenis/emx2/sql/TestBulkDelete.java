@@ -0,0 +1,54 @@
+package org.molgenis.emx2.sql;
+
+import static org.junit.Assert.*;
+import static org.molgenis.emx2.Column.column;
+import static org.molgenis.emx2.ColumnType.*;
+import static org.molgenis.emx2.Row.row;
+import static org.molgenis.emx2.TableMetadata.table;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.molgenis.emx2.*;
+
+public class TestBulkDelete {
+  private static Database db;
+
+  @BeforeClass
+  public static void setUp() {
+    db = TestDatabaseFactory.getTestDatabase();
+  }
+
+  @Test
+  public void testCompositeKeyAndInheritance() {
+    Schema s = db.dropCreateSchema(TestBulkDelete.class.getSimpleName());
+    s.create(
+        table(
+            "Visit",
+            column("patient").setPkey(),
+            column("date").setType(DATE).setPkey(),
+            column("nr").setType(INT).setPkey()));
+    Table followUp =
+        s.create(table("FollowUp").setInherit("Visit").add(column("remark").setType(TEXT)));
+
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      rows.add(row("patient", "p" + i % 10, "date", "2021-01-0" + (1 + i % 9), "nr", i));
+    }
+    followUp.insert(rows);
+
+    // delete every other row, which used to be one large OR condition
+    List<Row> delete = new ArrayList<>();
+    for (int i = 0; i < 5000; i += 2) {
+      delete.add(rows.get(i));
+    }
+    assertEquals(2500, followUp.delete(delete));
+
+    assertEquals(2500, followUp.retrieveRows().size());
+    assertEquals(2500, s.getTable("Visit").retrieveRows().size());
+    for (Row r : followUp.retrieveRows()) {
+      assertEquals(1, r.getInteger("nr") % 2);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package org.molgenis.emx2.sql;
+
+import static org.junit.Assert.*;
+import static org.molgenis.emx2.Column.column;
+import static org.molgenis.emx2.ColumnType.*;
+import static org.molgenis.emx2.FilterBean.f;
+import static org.molgenis.emx2.Operator.EQUALS;
+import static org.molgenis.emx2.Row.row;
+import static org.molgenis.emx2.TableMetadata.table;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.molgenis.emx2.*;
+
+public class TestBulkUpdate {
+  private static Database db;
+
+  @BeforeClass
+  public static void setUp() {
+    db = TestDatabaseFactory.getTestDatabase();
+  }
+
+  @Test
+  public void testCompositeKeyAndInheritance() {
+    Schema s = db.dropCreateSchema(TestBulkUpdate.class.getSimpleName());
+    s.create(
+        table(
+            "Sample",
+            column("study").setPkey(),
+            column("nr").setType(INT).setPkey(),
+            column("weight").setType(DECIMAL),
+            column("tags").setType(STRING_ARRAY)));
+    Table measured =
+        s.create(
+            table("MeasuredSample")
+                .setInherit("Sample")
+                .add(column("measuredOn").setType(DATE)));
+
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 2500; i++) {
+      rows.add(row("study", "s" + i % 2, "nr", i, "weight", 1.0, "measuredOn", "2021-01-01"));
+    }
+    measured.insert(rows);
+
+    List<Row> updates = new ArrayList<>();
+    for (int i = 0; i < 2500; i++) {
+      updates.add(
+          row(
+              "study",
+              "s" + i % 2,
+              "nr",
+              i,
+              "weight",
+              i / 2.0,
+              "tags",
+              new String[] {"a", "b" + i},
+              "measuredOn",
+              "2021-02-01"));
+    }
+    // last row for the same key wins
+    updates.add(
+        row("study", "s1", "nr", 7, "weight", 7.7, "tags", null, "measuredOn", "2021-03-01"));
+    assertEquals(2501, measured.update(updates));
+
+    Row result =
+        measured.query().where(f("study", EQUALS, "s0"), f("nr", EQUALS, 42)).retrieveRows().get(0);
+    assertEquals(21.0, result.getDecimal("weight"), 0.0001);
+    assertArrayEquals(new String[] {"a", "b42"}, result.getStringArray("tags"));
+    assertEquals("2021-02-01", result.getDate("measuredOn").toString());
+
+    result = measured.query().where(f("nr", EQUALS, 7)).retrieveRows().get(0);
+    assertEquals(7.7, result.getDecimal("weight"), 0.0001);
+    assertNull(result.getStringArray("tags"));
+    assertEquals("2021-03-01", result.getDate("measuredOn").toString());
+
+    // the superclass view sees the updated values too
+    result = s.getTable("Sample").query().where(f("nr", EQUALS, 7)).retrieveRows().get(0);
+    assertEquals(7.7, result.getDecimal("weight"), 0.0001);
+  }
+}
@@ -1,16 +1,23 @@
 package org.molgenis.emx2.sql;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
+import static org.molgenis.emx2.FilterBean.f;
+import static org.molgenis.emx2.Operator.EQUALS;
 import static org.molgenis.emx2.Column.column;
 import static org.molgenis.emx2.Row.row;
 import static org.molgenis.emx2.TableMetadata.table;
 
 import java.io.StringWriter;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.molgenis.emx2.ColumnType;
 import org.molgenis.emx2.Database;
+import org.molgenis.emx2.MolgenisException;
 import org.molgenis.emx2.Row;
 import org.molgenis.emx2.Schema;
 
@@ -57,6 +64,92 @@ public class TestCopy {
     assertEquals(2, schema.getTable("test2").retrieveRows().size());
   }
 
+  @Test
+  public void testBinaryCopyAllTypes() {
+    schema.create(
+        table(
+            "types",
+            column("id").setPkey(),
+            column("string").setType(ColumnType.STRING),
+            column("stringArray").setType(ColumnType.STRING_ARRAY),
+            column("int").setType(ColumnType.INT),
+            column("intArray").setType(ColumnType.INT_ARRAY),
+            column("decimal").setType(ColumnType.DECIMAL),
+            column("decimalArray").setType(ColumnType.DECIMAL_ARRAY),
+            column("bool").setType(ColumnType.BOOL),
+            column("boolArray").setType(ColumnType.BOOL_ARRAY),
+            column("date").setType(ColumnType.DATE),
+            column("dateArray").setType(ColumnType.DATE_ARRAY),
+            column("datetime").setType(ColumnType.DATETIME),
+            column("uuid").setType(ColumnType.UUID),
+            column("text").setType(ColumnType.TEXT),
+            column("jsonb").setType(ColumnType.JSONB),
+            column("file").setType(ColumnType.FILE)));
+    SqlTable table = (SqlTable) schema.getTable("types");
+    assertTrue(table.isCopyInSupported());
+
+    UUID uuid = UUID.randomUUID();
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 2500; i++) {
+      rows.add(
+          row(
+              "id", "id" + i,
+              "string", "quote\"comma,newline\n" + i,
+              "stringArray", List.of("a", "b,\"c\""),
+              "int", i,
+              "intArray", List.of(1, -2, i),
+              "decimal", -1234.5678 + i,
+              "decimalArray", List.of(0.1, 2.0),
+              "bool", i % 2 == 0,
+              "boolArray", List.of(true, false),
+              "date", "2021-06-01",
+              "dateArray", List.of("1999-12-31", "2000-01-01"),
+              "datetime", LocalDateTime.of(2021, 6, 1, 12, 34, 56, 789000000),
+              "uuid", uuid,
+              "text", "caf\u00e9 " + i,
+              "jsonb", "{\"key\": " + i + "}",
+              "file_contents", new byte[] {0, 1, 2, (byte) i},
+              "file_mimetype", "application/octet-stream"));
+    }
+    // null and empty values
+    rows.add(row("id", "empty", "stringArray", new String[0]));
+
+    // collections of this size go through binary copy
+    assertEquals(2501, table.insert(rows));
+
+    Row result = table.query().where(f("id", EQUALS, "id7")).retrieveRows().get(0);
+    assertEquals("quote\"comma,newline\n7", result.getString("string"));
+    assertArrayEquals(new String[] {"a", "b,\"c\""}, result.getStringArray("stringArray"));
+    assertEquals(Integer.valueOf(7), result.getInteger("int"));
+    assertArrayEquals(new Integer[] {1, -2, 7}, result.getIntegerArray("intArray"));
+    assertEquals(-1227.5678, result.getDecimal("decimal"), 0.00001);
+    assertArrayEquals(new Double[] {0.1, 2.0}, result.getDecimalArray("decimalArray"));
+    assertEquals(false, result.getBoolean("bool"));
+    assertArrayEquals(new Boolean[] {true, false}, result.getBooleanArray("boolArray"));
+    assertEquals(LocalDate.of(2021, 6, 1), result.getDate("date"));
+    assertArrayEquals(
+        new LocalDate[] {LocalDate.of(1999, 12, 31), LocalDate.of(2000, 1, 1)},
+        result.getDateArray("dateArray"));
+    assertEquals(
+        LocalDateTime.of(2021, 6, 1, 12, 34, 56, 789000000), result.getDateTime("datetime"));
+    assertEquals(uuid, result.getUuid("uuid"));
+    assertEquals("caf\u00e9 7", result.getText("text"));
+    assertTrue(result.getJsonb("jsonb").data().contains("7"));
+
+    result = table.query().where(f("id", EQUALS, "empty")).retrieveRows().get(0);
+    assertNull(result.getString("string"));
+    assertEquals(0, result.getStringArray("stringArray").length);
+
+    // errors are reported, and nothing is committed
+    try {
+      table.copyIn(List.of(row("id", "id1")));
+      fail("duplicate key should fail");
+    } catch (MolgenisException e) {
+      // expected
+    }
+    assertEquals(2501, table.retrieveRows().size());
+  }
+
   //  @Test
   //  public void test2() {
   //    schema.create(table("speed1", column("A")));
@@ -1,6 +1,8 @@
 package org.molgenis.emx2.sql;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.molgenis.emx2.Column.column;
 import static org.molgenis.emx2.ColumnType.INT;
 import static org.molgenis.emx2.ColumnType.REF;
@@ -8,8 +10,11 @@ import static org.molgenis.emx2.FilterBean.f;
 import static org.molgenis.emx2.Operator.EQUALS;
 import static org.molgenis.emx2.SelectColumn.s;
 import static org.molgenis.emx2.TableMetadata.table;
+import static org.molgenis.emx2.sql.SqlQuery.CURSOR_FIELD;
 
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.molgenis.emx2.*;
@@ -146,4 +151,89 @@ public class TestQuery {
     assertEquals(1, rows.size());
     assertEquals((Integer) 2, rows.get(0).getInteger("Mother-ID"));
   }
+
+  @Test
+  public void testRetrieveRowStream() {
+    // small fetch size so the cursor needs multiple round trips
+    try (Stream<Row> stream =
+        schema
+            .getTable(PERSON)
+            .select(s("ID"), s("First_Name"))
+            .where(f("Last_Name", EQUALS, "Duck"))
+            .orderBy("ID")
+            .fetchSize(2)
+            .retrieveRowStream()) {
+      List<Integer> ids = stream.map(r -> r.getInteger("ID")).collect(Collectors.toList());
+      assertEquals(List.of(1, 2, 3, 4, 5), ids);
+    }
+
+    // also works inside a transaction, using the transaction connection
+    database.tx(
+        db -> {
+          try (Stream<Row> stream =
+              db.getSchema("TestQuery").getTable(PERSON).query().retrieveRowStream()) {
+            assertEquals(5, stream.count());
+          }
+        });
+  }
+
+  @Test
+  public void testKeysetPagination() {
+    Table person = schema.getTable(PERSON);
+    List<Row> page1 =
+        person.select(s("ID"), s(CURSOR_FIELD)).orderBy("ID").limit(2).retrieveRows();
+    assertEquals((Integer) 2, page1.get(1).getInteger("ID"));
+
+    // next page starts after the last row of the previous
+    List<Row> page2 =
+        person
+            .select(s("ID"), s(CURSOR_FIELD))
+            .orderBy("ID")
+            .limit(2)
+            .after(page1.get(1).getString(CURSOR_FIELD))
+            .retrieveRows();
+    assertEquals(2, page2.size());
+    assertEquals((Integer) 3, page2.get(0).getInteger("ID"));
+    assertEquals((Integer) 4, page2.get(1).getInteger("ID"));
+
+    // and back again
+    List<Row> previous =
+        person
+            .select(s("ID"))
+            .orderBy("ID")
+            .limit(2)
+            .before(page2.get(0).getString(CURSOR_FIELD))
+            .retrieveRows();
+    assertEquals((Integer) 1, previous.get(0).getInteger("ID"));
+    assertEquals((Integer) 2, previous.get(1).getInteger("ID"));
+
+    // nullable column in descending order, nulls come first, primary key breaks the ties
+    List<Row> byFather =
+        person
+            .select(s("ID"), s(CURSOR_FIELD))
+            .orderBy("Father", Order.DESC)
+            .limit(2)
+            .retrieveRows();
+    assertEquals((Integer) 2, byFather.get(1).getInteger("ID"));
+    byFather =
+        person
+            .select(s("ID"), s(CURSOR_FIELD))
+            .orderBy("Father", Order.DESC)
+            .limit(2)
+            .after(byFather.get(1).getString(CURSOR_FIELD))
+            .retrieveRows();
+    assertEquals((Integer) 3, byFather.get(0).getInteger("ID"));
+    assertEquals((Integer) 4, byFather.get(1).getInteger("ID"));
+
+    // same works for json queries
+    String json =
+        person
+            .select(s("ID"))
+            .orderBy("ID")
+            .limit(2)
+            .after(page1.get(1).getString(CURSOR_FIELD))
+            .retrieveJSON();
+    assertTrue(json.contains("\"ID\":3") && json.contains("\"ID\":4"));
+    assertFalse(json.contains("\"ID\":2") || json.contains("\"ID\":5"));
+  }
 }
@@ -0,0 +1,121 @@
+package org.molgenis.emx2.sql;
+
+import static org.junit.Assert.*;
+import static org.molgenis.emx2.Column.column;
+import static org.molgenis.emx2.ColumnType.*;
+import static org.molgenis.emx2.Constants.MG_EDIT_ROLE;
+import static org.molgenis.emx2.Row.row;
+import static org.molgenis.emx2.TableMetadata.table;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.molgenis.emx2.BinaryFileWrapper;
+import org.molgenis.emx2.Column;
+import org.molgenis.emx2.MolgenisException;
+import org.molgenis.emx2.Row;
+import org.molgenis.emx2.TableMetadata;
+
+public class TestRowEncoder {
+  static final TableMetadata TABLE =
+      table(
+          "Encoded",
+          column("id").setPkey(),
+          column("int").setType(INT),
+          column("decimal").setType(DECIMAL),
+          column("date").setType(DATE),
+          column("bool").setType(BOOL),
+          column("strings").setType(STRING_ARRAY),
+          column("text").setType(TEXT),
+          column("jsonb").setType(JSONB));
+
+  @Test
+  public void testSameValuesAsGetValuesAsMap() {
+    List<Column> columns = TABLE.getMutationColumns();
+    SqlRowEncoder encoder = new SqlRowEncoder(columns, columns);
+    Object[] values = new Object[encoder.size()];
+    for (Row row : createRows(100)) {
+      Map<String, Object> expected = SqlTypeUtils.getValuesAsMap(row, columns);
+      encoder.encode(row, values);
+      assertArrayEquals(expected.values().toArray(), values);
+    }
+  }
+
+  @Test
+  public void testSameValuesForComputedValidationEditRoleAndFile() {
+    TableMetadata table =
+        table(
+            "Special",
+            column("id").setPkey(),
+            column("count").setType(INT),
+            column("twice").setType(INT).setComputed("count*2"),
+            column("positive").setType(INT).setValidation("if(value<1)'Must be larger than 1'"),
+            column(MG_EDIT_ROLE),
+            column("file").setType(FILE));
+    List<Column> columns = table.getMutationColumns();
+    SqlRowEncoder encoder = new SqlRowEncoder(columns, columns);
+    Object[] values = new Object[encoder.size()];
+
+    List<Row> rows =
+        List.of(
+            row("id", "1", "count", 2, "positive", 3, MG_EDIT_ROLE, "editor"),
+            // provided values of computed columns are ignored
+            row("id", "2", "count", 2, "twice", 7),
+            row("id", "3")
+                .setBinary(
+                    "file", new BinaryFileWrapper("text/plain", "file.txt", "hello".getBytes())),
+            row("id", "4", "count", null, MG_EDIT_ROLE, null));
+    for (Row row : rows) {
+      Map<String, Object> expected = SqlTypeUtils.getValuesAsMap(row, columns);
+      encoder.encode(row, values);
+      assertArrayEquals(expected.values().toArray(), values);
+    }
+
+    // both fail on validation
+    Row invalid = row("id", "5", "positive", 0);
+    try {
+      SqlTypeUtils.getValuesAsMap(invalid, columns);
+      fail("should fail on validation");
+    } catch (MolgenisException e) {
+      // expected
+    }
+    try {
+      encoder.encode(invalid, values);
+      fail("should fail on validation");
+    } catch (MolgenisException e) {
+      // expected
+    }
+
+    // same for a batch
+    List<Object[]> batch = new ArrayList<>();
+    encoder.encode(rows, values, (row, encoded) -> batch.add(encoded.clone()));
+    for (int i = 0; i < rows.size(); i++) {
+      Map<String, Object> expected = SqlTypeUtils.getValuesAsMap(rows.get(i), columns);
+      assertArrayEquals(expected.values().toArray(), batch.get(i));
+    }
+    try {
+      encoder.encode(List.of(rows.get(0), invalid), values, (row, encoded) -> {});
+      fail("should fail on validation");
+    } catch (MolgenisException e) {
+      // expected
+    }
+  }
+
+  static List<Row> createRows(int count) {
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      rows.add(
+          row(
+              "id", "id" + i,
+              "int", "" + i,
+              "decimal", i + ".5",
+              "date", "2021-06-01",
+              "bool", "true",
+              "strings", "a,b,c",
+              "text", "text " + i,
+              "jsonb", "{\"a\":" + i + "}"));
+    }
+    return rows;
+  }
+}
@@ -0,0 +1,117 @@
+package org.molgenis.emx2.sql;
+
+import static org.jooq.impl.DSL.val;
+import static org.junit.Assert.*;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+public class TestSchemaChangeNotifier {
+  private static SqlDatabase db;
+
+  @BeforeClass
+  public static void setUp() {
+    db = (SqlDatabase) TestDatabaseFactory.getTestDatabase();
+  }
+
+  @Test
+  public void testChangesOfOtherNodesAreReceived() throws InterruptedException {
+    String own = "TestSchemaChangeNotifierOwn";
+    String other = "TestSchemaChangeNotifierOther";
+    List<String> received = new CopyOnWriteArrayList<>();
+    CountDownLatch latch = new CountDownLatch(1);
+    Consumer<String> listener =
+        schemaName -> {
+          received.add(schemaName);
+          if (other.equals(schemaName)) {
+            latch.countDown();
+          }
+        };
+    SqlSchemaChangeNotifier.addListener(listener);
+    try {
+      // listener thread might still be connecting, so repeat until received
+      for (int i = 0; i < 30 && latch.getCount() > 0; i++) {
+        SqlSchemaChangeNotifier.notify(db.getJooq(), own);
+        db.getJooq()
+            .execute(
+                "SELECT pg_notify('molgenis_schema_changed', {0})",
+                val("otherNode:" + other));
+        latch.await(1, TimeUnit.SECONDS);
+      }
+      assertEquals(0, latch.getCount());
+      assertFalse(received.contains(own));
+    } finally {
+      SqlSchemaChangeNotifier.removeListener(listener);
+    }
+  }
+
+  @Test
+  public void testDropSchemaNotifies() {
+    String schemaName = "TestSchemaChangeNotifierDrop";
+    db.dropCreateSchema(schemaName);
+    // own notifications are skipped by the listener, so listen ourselves
+    List<String> payloads =
+        db.getJooq()
+            .connectionResult(
+                connection -> {
+                  List<String> result = new ArrayList<>();
+                  try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN molgenis_schema_changed");
+                    db.dropSchema(schemaName);
+                    PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                    for (int i = 0; i < 10 && result.isEmpty(); i++) {
+                      PGNotification[] notifications = pgConnection.getNotifications(500);
+                      if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                          result.add(notification.getParameter());
+                        }
+                      }
+                    }
+                    statement.execute("UNLISTEN molgenis_schema_changed");
+                  }
+                  return result;
+                });
+    assertTrue(payloads.stream().anyMatch(p -> p.endsWith(":" + schemaName)));
+  }
+
+  @Test
+  public void testNotificationsWaitForCommit() throws InterruptedException {
+    String schemaName = "TestSchemaChangeNotifierRollback";
+    CountDownLatch latch = new CountDownLatch(1);
+    Consumer<String> listener =
+        name -> {
+          if (schemaName.equals(name)) {
+            latch.countDown();
+          }
+        };
+    SqlSchemaChangeNotifier.addListener(listener);
+    try {
+      try {
+        db.tx(
+            tdb -> {
+              ((SqlDatabase) tdb)
+                  .getJooq()
+                  .execute(
+                      "SELECT pg_notify('molgenis_schema_changed', {0})",
+                      val("otherNode:" + schemaName));
+              throw new RuntimeException("rollback");
+            });
+        fail("should have rolled back");
+      } catch (Exception e) {
+        // expected
+      }
+      assertFalse(latch.await(2, TimeUnit.SECONDS));
+    } finally {
+      SqlSchemaChangeNotifier.removeListener(listener);
+    }
+  }
+}
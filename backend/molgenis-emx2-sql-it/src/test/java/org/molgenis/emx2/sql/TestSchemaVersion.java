@@ -0,0 +1,49 @@
+package org.molgenis.emx2.sql;
+
+import static org.junit.Assert.*;
+import static org.molgenis.emx2.Column.column;
+import static org.molgenis.emx2.TableMetadata.table;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.molgenis.emx2.Schema;
+
+public class TestSchemaVersion {
+  private static SqlDatabase db;
+
+  @BeforeClass
+  public static void setUp() {
+    db = (SqlDatabase) TestDatabaseFactory.getTestDatabase();
+  }
+
+  @Test
+  public void testReloadOnlyWhenVersionChanged() {
+    Schema schema = db.dropCreateSchema(TestSchemaVersion.class.getSimpleName());
+    long version = MetadataUtils.loadSchemaVersion(db.getJooq(), schema.getName());
+
+    schema.create(table("First", column("id").setPkey()));
+    assertTrue(MetadataUtils.loadSchemaVersion(db.getJooq(), schema.getName()) > version);
+    version = MetadataUtils.loadSchemaVersion(db.getJooq(), schema.getName());
+
+    schema.getMetadata().setSetting("key", "value");
+    assertTrue(MetadataUtils.loadSchemaVersion(db.getJooq(), schema.getName()) > version);
+
+    SqlSchemaMetadata metadata = (SqlSchemaMetadata) db.getSchema(schema.getName()).getMetadata();
+    metadata.reload();
+
+    // unchanged, so only the version is queried
+    assertEquals(
+        0,
+        StatementCounter.count(
+            db, "column_metadata", () -> assertFalse(metadata.reloadIfChanged())));
+
+    // changed by another session
+    SqlDatabase other = new SqlDatabase(false);
+    other.getSchema(schema.getName()).create(table("Second", column("id").setPkey()));
+    assertNull(metadata.getTableMetadata("Second"));
+    assertTrue(metadata.reloadIfChanged());
+    assertNotNull(metadata.getTableMetadata("Second"));
+
+    assertEquals(-1L, MetadataUtils.loadSchemaVersion(db.getJooq(), "TestSchemaVersionMissing"));
+  }
+}
@@ -0,0 +1,115 @@
+package org.molgenis.emx2.sql;
+
+import static org.junit.Assert.*;
+import static org.molgenis.emx2.Column.column;
+import static org.molgenis.emx2.TableMetadata.table;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.molgenis.emx2.Privileges;
+import org.molgenis.emx2.Schema;
+import org.molgenis.emx2.TableMetadata;
+
+public class TestSharedSchemaMetadata {
+  private static SqlDatabase db;
+
+  @BeforeClass
+  public static void setUp() {
+    db = (SqlDatabase) TestDatabaseFactory.getTestDatabase();
+  }
+
+  @Test
+  public void testMetadataIsSharedBetweenSessions() {
+    String viewer = "TestSharedSchemaMetadataViewer";
+    String other = "TestSharedSchemaMetadataOther";
+    db.addUser(viewer);
+    db.addUser(other);
+    Schema schema = db.dropCreateSchema(TestSharedSchemaMetadata.class.getSimpleName());
+    schema.addMember(viewer, Privileges.VIEWER.toString());
+    schema.create(table("Shared", column("id").setPkey()));
+
+    SqlDatabase session1 = new SqlDatabase(false);
+    session1.setActiveUser(viewer);
+    SqlDatabase session2 = new SqlDatabase(false);
+    session2.setActiveUser(viewer);
+    SqlDatabase session3 = new SqlDatabase(false);
+    session3.setActiveUser(other);
+
+    assertNotNull(session1.getSchema(schema.getName()).getTable("Shared"));
+
+    // second session doesn't load metadata itself
+    assertEquals(
+        0,
+        StatementCounter.count(
+            session2,
+            "column_metadata",
+            () -> assertNotNull(session2.getSchema(schema.getName()).getTable("Shared"))));
+
+    // but the copies are independent
+    assertNotSame(
+        session1.getSchema(schema.getName()).getMetadata(),
+        session2.getSchema(schema.getName()).getMetadata());
+
+    // tables are bound to the session, but share the columns
+    TableMetadata table1 =
+        session1.getSchema(schema.getName()).getMetadata().getTableMetadata("Shared");
+    TableMetadata table2 =
+        session2.getSchema(schema.getName()).getMetadata().getTableMetadata("Shared");
+    assertNotSame(table1, table2);
+    assertEquals(table1.getColumns().size(), table2.getColumns().size());
+    for (int i = 0; i < table1.getColumns().size(); i++) {
+      assertSame(table1.getColumns().get(i), table2.getColumns().get(i));
+    }
+
+    // changes by one session don't change the columns shared with the other
+    SqlDatabase session4 = new SqlDatabase(false);
+    session4
+        .getSchema(schema.getName())
+        .getMetadata()
+        .getTableMetadata("Shared")
+        .add(column("extra"));
+    assertNull(table2.getColumn("extra"));
+    assertSame(table1.getColumns().get(0), table2.getColumns().get(0));
+
+    // visibility is per user
+    assertNull(session3.getSchema(schema.getName()));
+    assertFalse(session3.getSchemaNames().contains(schema.getName()));
+
+    // changes invalidate the shared metadata and visibility
+    schema.create(table("Added", column("id").setPkey()));
+    schema.addMember(other, Privileges.VIEWER.toString());
+    session2.clearCache();
+    session3.clearCache();
+    assertNotNull(session2.getSchema(schema.getName()).getTable("Added"));
+    assertNotNull(session3.getSchema(schema.getName()).getTable("Added"));
+    assertTrue(session3.getSchemaNames().contains(schema.getName()));
+  }
+
+  @Test
+  public void testDroppedSchemaIsRemoved() {
+    String name = TestSharedSchemaMetadata.class.getSimpleName() + "Dropped";
+    db.dropCreateSchema(name).create(table("Dropped", column("id").setPkey()));
+
+    SqlDatabase session = new SqlDatabase(false);
+    assertNotNull(session.getSchema(name));
+    assertTrue(session.getSchemaNames().contains(name));
+
+    // outside transaction
+    db.dropSchema(name);
+    session.clearCache();
+    assertNull(session.getSchema(name));
+    assertFalse(session.getSchemaNames().contains(name));
+
+    // dropped without us being notified, e.g. by other node
+    db.dropCreateSchema(name);
+    session.clearCache();
+    assertNotNull(session.getSchema(name));
+    assertTrue(session.getSchemaNames().contains(name));
+    new SqlDatabase(false)
+        .tx(other -> SqlSchemaMetadataExecutor.executeDropSchema((SqlDatabase) other, name));
+    session.clearCache();
+    assertNull(session.getSchema(name));
+    session.clearCache();
+    assertFalse(session.getSchemaNames().contains(name));
+  }
+}
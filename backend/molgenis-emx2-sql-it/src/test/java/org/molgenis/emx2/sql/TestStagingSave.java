@@ -0,0 +1,113 @@
+package org.molgenis.emx2.sql;
+
+import static org.junit.Assert.*;
+import static org.molgenis.emx2.Column.column;
+import static org.molgenis.emx2.ColumnType.*;
+import static org.molgenis.emx2.Constants.*;
+import static org.molgenis.emx2.FilterBean.f;
+import static org.molgenis.emx2.Operator.EQUALS;
+import static org.molgenis.emx2.Row.row;
+import static org.molgenis.emx2.TableMetadata.table;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.molgenis.emx2.*;
+
+public class TestStagingSave {
+  private static Schema schema;
+
+  @BeforeClass
+  public static void setUp() {
+    Database database = TestDatabaseFactory.getTestDatabase();
+    schema = database.dropCreateSchema(TestStagingSave.class.getSimpleName());
+  }
+
+  @Test
+  public void testSaveViaStagingWithInheritance() {
+    schema.create(table("Animal", column("name").setPkey(), column("weight").setType(INT)));
+    Table dog = schema.create(table("Dog").setInherit("Animal").add(column("breed")));
+
+    dog.insert(row("name", "dog0", "weight", 1, "breed", "old"));
+    Row before = dog.query().where(f("name", EQUALS, "dog0")).retrieveRows().get(0);
+
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 3000; i++) {
+      rows.add(row("name", "dog" + i, "weight", i, "breed", "breed" + i));
+    }
+    assertEquals(3000, dog.save(rows, SaveMode.STAGING));
+
+    assertEquals(3000, dog.retrieveRows().size());
+    assertEquals(3000, schema.getTable("Animal").retrieveRows().size());
+
+    // existing row was updated, keeping its inserted metadata
+    Row after = dog.query().where(f("name", EQUALS, "dog0")).retrieveRows().get(0);
+    assertEquals("breed0", after.getString("breed"));
+    assertEquals(Integer.valueOf(0), after.getInteger("weight"));
+    assertEquals(before.getDateTime(MG_INSERTEDON), after.getDateTime(MG_INSERTEDON));
+    assertTrue(after.getDateTime(MG_UPDATEDON).isAfter(before.getDateTime(MG_UPDATEDON)));
+
+    // new rows got both
+    Row inserted = dog.query().where(f("name", EQUALS, "dog7")).retrieveRows().get(0);
+    assertEquals("breed7", inserted.getString("breed"));
+    assertNotNull(inserted.getString(MG_INSERTEDBY));
+    assertEquals(inserted.getDateTime(MG_INSERTEDON), inserted.getDateTime(MG_UPDATEDON));
+
+    // rows of another table are refused, and nothing is saved
+    try {
+      schema
+          .getTable("Animal")
+          .save(List.of(row("name", "cat", MG_TABLECLASS, "Dog")), SaveMode.STAGING);
+      fail("should fail");
+    } catch (MolgenisException e) {
+      // expected
+    }
+    assertEquals(3000, schema.getTable("Animal").retrieveRows().size());
+  }
+
+  @Test
+  public void testSaveViaStagingKeepsColumnsNotProvided() {
+    Table bird =
+        schema.create(
+            table("Bird", column("name").setPkey(), column("color"), column("size").setType(INT)));
+    bird.insert(row("name", "b1", "color", "red", "size", 1), row("name", "b2", "color", "blue"));
+
+    // second row leaves out 'color', which must not be overwritten with null
+    bird.save(
+        List.of(
+            row("name", "b1", "color", "green", "size", 2),
+            row("name", "b2", "size", 3),
+            row("name", "b3", "color", "white", "size", 4)),
+        SaveMode.STAGING);
+
+    assertEquals("green", getBird(bird, "b1").getString("color"));
+    assertEquals("blue", getBird(bird, "b2").getString("color"));
+    assertEquals(Integer.valueOf(3), getBird(bird, "b2").getInteger("size"));
+    assertEquals("white", getBird(bird, "b3").getString("color"));
+  }
+
+  @Test
+  public void testSaveViaStagingWithDuplicateKeys() {
+    schema.create(table("Fish", column("name").setPkey(), column("size").setType(INT)));
+    Table shark = schema.create(table("Shark").setInherit("Fish").add(column("teeth")));
+    shark.insert(row("name", "s1", "size", 1, "teeth", "few"));
+
+    // the last row with the same key wins
+    shark.save(
+        List.of(
+            row("name", "s1", "size", 2, "teeth", "some"),
+            row("name", "s2", "size", 3, "teeth", "many"),
+            row("name", "s1", "size", 4, "teeth", "lots")),
+        SaveMode.STAGING);
+
+    assertEquals(2, shark.retrieveRows().size());
+    Row s1 = shark.query().where(f("name", EQUALS, "s1")).retrieveRows().get(0);
+    assertEquals(Integer.valueOf(4), s1.getInteger("size"));
+    assertEquals("lots", s1.getString("teeth"));
+  }
+
+  private Row getBird(Table bird, String name) {
+    return bird.query().where(f("name", EQUALS, name)).retrieveRows().get(0);
+  }
+}
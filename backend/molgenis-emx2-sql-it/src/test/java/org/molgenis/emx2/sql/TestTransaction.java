@@ -1,6 +1,6 @@
 package org.molgenis.emx2.sql;
 
-import static org.junit.Assert.assertNull;
+import static org.junit.Assert.*;
 import static org.molgenis.emx2.TableMetadata.table;
 
 import java.sql.SQLException;
@@ -35,4 +35,33 @@ public class TestTransaction {
       assertNull(s.getTable("a"));
     }
   }
+
+  @Test
+  public void testOnlyUsedSchemasAreCopied() {
+    SqlDatabase database = (SqlDatabase) db;
+    database.dropCreateSchema("testTransactionUsed").create(table("a"));
+    database.dropCreateSchema("testTransactionUnused").create(table("b"));
+    database.dropCreateSchema("testTransactionDropped");
+    String version = database.getDatabaseVersion();
+
+    // database version is not queried per transaction
+    assertEquals(
+        0,
+        StatementCounter.count(
+            database,
+            "version_metadata",
+            () ->
+                database.tx(
+                    tdb -> {
+                      tdb.getSchema("testTransactionUsed").create(table("c"));
+                      tdb.dropSchema("testTransactionDropped");
+                    })));
+    assertEquals(version, database.getDatabaseVersion());
+
+    // changes of the tx are merged, unused schemas are kept as they were
+    assertNotNull(database.getSchema("testTransactionUsed").getTable("a"));
+    assertNotNull(database.getSchema("testTransactionUsed").getTable("c"));
+    assertNotNull(database.getSchema("testTransactionUnused").getTable("b"));
+    assertNull(database.getSchema("testTransactionDropped"));
+  }
 }
@@ -30,6 +30,10 @@ public class MetadataUtils {
   private static final org.jooq.Field VERSION_ID = field(name("id"), INTEGER.nullable(false));
   private static final org.jooq.Field VERSION = field(name("version"), VARCHAR.nullable(false));
 
+  // schema
+  private static final org.jooq.Field SCHEMA_VERSION =
+      field(name("version"), BIGINT.nullable(false).defaultValue(0L));
+
   // table
   private static final org.jooq.Field TABLE_SCHEMA =
       field(name("table_schema"), VARCHAR.nullable(false));
@@ -136,7 +140,9 @@ public class MetadataUtils {
             }
 
             try (CreateTableColumnStep t = jooq.createTableIfNotExists(SCHEMA_METADATA)) {
-              t.columns(TABLE_SCHEMA).constraint(primaryKey(TABLE_SCHEMA)).execute();
+              t.columns(TABLE_SCHEMA, SCHEMA_VERSION)
+                  .constraint(primaryKey(TABLE_SCHEMA))
+                  .execute();
 
               jooq.execute("ALTER TABLE {0} ENABLE ROW LEVEL SECURITY", SCHEMA_METADATA);
 
@@ -213,6 +219,8 @@ public class MetadataUtils {
 
       logger.info("INITIALIZING MOLGENIS METADATA SCHEMA COMPLETE");
     }
+    // added later, so might be missing in existing databases
+    j.alterTable(SCHEMA_METADATA).addColumnIfNotExists(SCHEMA_VERSION).execute();
   }
 
   private static void createRowLevelPermissions(DSLContext jooq, org.jooq.Table table) {
@@ -259,6 +267,24 @@ public class MetadataUtils {
     return schema;
   }
 
+  /** @return version of the schema metadata, or -1 if the schema doesn't exist or isn't visible */
+  protected static long loadSchemaVersion(DSLContext jooq, String schemaName) {
+    org.jooq.Record record =
+        jooq.select(SCHEMA_VERSION)
+            .from(SCHEMA_METADATA)
+            .where(TABLE_SCHEMA.eq(schemaName))
+            .fetchOne();
+    return record != null ? record.get(SCHEMA_VERSION, Long.class) : -1L;
+  }
+
+  // to be called on every change of the metadata of a schema, so caches can check for changes
+  private static void incrementSchemaVersion(DSLContext jooq, String schemaName) {
+    jooq.update(SCHEMA_METADATA)
+        .set(SCHEMA_VERSION, SCHEMA_VERSION.plus(1))
+        .where(TABLE_SCHEMA.eq(schemaName))
+        .execute();
+  }
+
   protected static void deleteSchema(DSLContext jooq, String schemaName) {
     jooq.deleteFrom(SCHEMA_METADATA).where(TABLE_SCHEMA.eq(schemaName)).execute();
     jooq.deleteFrom(SETTINGS_METADATA).where(TABLE_SCHEMA.eq(schemaName)).execute();
@@ -288,6 +314,7 @@ public class MetadataUtils {
           .set(TABLE_DESCRIPTION, table.getDescription())
           .set(TALBE_SEMANTICS, table.getSemantics())
           .execute();
+      incrementSchemaVersion(jooq, table.getSchema().getName());
     } catch (Exception e) {
       throw new MolgenisException("save of table metadata failed", e);
     }
@@ -298,6 +325,7 @@ public class MetadataUtils {
         .set(TABLE_NAME, newName)
         .where(TABLE_SCHEMA.eq(table.getSchemaName()), TABLE_NAME.eq(table.getTableName()))
         .execute();
+    incrementSchemaVersion(jooq, table.getSchemaName());
   }
 
   protected static List<User> loadUsers(DSLContext jooq, int limit, int offset) {
@@ -405,6 +433,7 @@ public class MetadataUtils {
             TABLE_SCHEMA.eq(table.getSchema().getName()),
             SETTINGS_TABLE_NAME.eq(table.getTableName()))
         .execute();
+    incrementSchemaVersion(jooq, table.getSchema().getName());
   }
 
   protected static void saveColumnMetadata(DSLContext jooq, Column column) {
@@ -473,6 +502,7 @@ public class MetadataUtils {
         .set(COLUMN_VISIBLE, column.getVisible())
         .set(COLUMN_FORMAT, column.getColumnFormat())
         .execute();
+    incrementSchemaVersion(jooq, column.getSchemaName());
   }
 
   protected static void deleteColumn(DSLContext jooq, Column column) {
@@ -482,6 +512,7 @@ public class MetadataUtils {
             TABLE_NAME.eq(column.getTableName()),
             COLUMN_NAME.eq(column.getName()))
         .execute();
+    incrementSchemaVersion(jooq, column.getSchemaName());
   }
 
   protected static List<Setting> loadSettings(DSLContext jooq, SchemaMetadata schema) {
@@ -512,6 +543,7 @@ public class MetadataUtils {
           .doUpdate()
           .set(SETTINGS_VALUE, setting.getValue())
           .execute();
+      incrementSchemaVersion(jooq, schema.getName());
     } catch (Exception e) {
       throw new MolgenisException("save of settings failed", e);
     }
@@ -525,6 +557,7 @@ public class MetadataUtils {
             table != null ? TABLE_NAME.eq(table.getTableName()) : TABLE_NAME.eq(NOT_PROVIDED),
             SETTINGS_NAME.eq(setting.getKey()))
         .execute();
+    incrementSchemaVersion(jooq, schema.getName());
   }
 
   protected static boolean schemaExists(DSLContext jooq, String name) {
@@ -0,0 +1,323 @@
+package org.molgenis.emx2.sql;
+
+import static org.molgenis.emx2.utils.TypeUtils.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.stream.Collectors;
+import org.molgenis.emx2.MolgenisException;
+import org.molgenis.emx2.utils.TypeUtils;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.postgresql.core.BaseConnection;
+
+/**
+ * Streams tuples into a table using 'COPY ... FROM STDIN (FORMAT binary)'. Values are encoded
+ * based on the actual column types in the database catalog, so the encoding always matches the
+ * receiving column.
+ */
+class SqlBinaryCopyWriter implements AutoCloseable {
+  private static final byte[] SIGNATURE = {
+    'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0
+  };
+  private static final int BUFFER_SIZE = 65536;
+  private static final LocalDateTime PG_EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+  private static final long PG_EPOCH_DAYS = LocalDate.of(2000, 1, 1).toEpochDay();
+  private static final BigInteger NBASE = BigInteger.valueOf(10000);
+
+  // postgresql type oids, see pg_type.dat
+  private static final int BOOL = 16;
+  private static final int BYTEA = 17;
+  private static final int INT8 = 20;
+  private static final int INT2 = 21;
+  private static final int INT4 = 23;
+  private static final int TEXT = 25;
+  private static final int JSON = 114;
+  private static final int FLOAT4 = 700;
+  private static final int FLOAT8 = 701;
+  private static final int BPCHAR = 1042;
+  private static final int VARCHAR = 1043;
+  private static final int DATE = 1082;
+  private static final int TIMESTAMP = 1114;
+  private static final int NUMERIC = 1700;
+  private static final int UUID = 2950;
+  private static final int JSONB = 3802;
+  private static final Set<Integer> SUPPORTED =
+      Set.of(
+          BOOL, BYTEA, INT8, INT2, INT4, TEXT, JSON, FLOAT4, FLOAT8, BPCHAR, VARCHAR, DATE,
+          TIMESTAMP, NUMERIC, UUID, JSONB);
+
+  private final List<String> columnNames;
+  private final int[] typeOids;
+  private final int[] elementOids;
+  private final PGCopyOutputStream copy;
+  private final DataOutputStream out;
+  private long count = 0;
+
+  SqlBinaryCopyWriter(
+      Connection connection, String schemaName, String tableName, List<String> columnNames)
+      throws SQLException {
+    this.columnNames = columnNames;
+    this.typeOids = new int[columnNames.size()];
+    this.elementOids = new int[columnNames.size()];
+    resolveTypes(connection, schemaName, tableName);
+
+    String sql =
+        "COPY \""
+            + schemaName
+            + "\".\""
+            + tableName
+            + "\"("
+            + columnNames.stream().map(c -> "\"" + c + "\"").collect(Collectors.joining(","))
+            + ") FROM STDIN (FORMAT binary)";
+    this.copy = new PGCopyOutputStream(connection.unwrap(BaseConnection.class), sql, BUFFER_SIZE);
+    this.out = new DataOutputStream(copy);
+    try {
+      out.write(SIGNATURE);
+      out.writeInt(0); // flags
+      out.writeInt(0); // header extension length
+    } catch (IOException e) {
+      cancel();
+      throw new MolgenisException("binary copy into table '" + tableName + "' failed", e);
+    }
+  }
+
+  private void resolveTypes(Connection connection, String schemaName, String tableName)
+      throws SQLException {
+    Map<String, int[]> types = new HashMap<>();
+    try (PreparedStatement stmt =
+        connection.prepareStatement(
+            "SELECT a.attname, a.atttypid,"
+                + " CASE WHEN t.typcategory = 'A' THEN t.typelem ELSE 0 END FROM pg_attribute a"
+                + " JOIN pg_type t ON t.oid = a.atttypid"
+                + " WHERE a.attrelid = (quote_ident(?) || '.' || quote_ident(?))::regclass"
+                + " AND a.attnum > 0 AND NOT a.attisdropped")) {
+      stmt.setString(1, schemaName);
+      stmt.setString(2, tableName);
+      try (ResultSet rs = stmt.executeQuery()) {
+        while (rs.next()) {
+          types.put(rs.getString(1), new int[] {rs.getInt(2), rs.getInt(3)});
+        }
+      }
+    }
+    for (int i = 0; i < columnNames.size(); i++) {
+      int[] type = types.get(columnNames.get(i));
+      if (type == null) {
+        throw new MolgenisException(
+            "binary copy failed: column '" + columnNames.get(i) + "' not found in " + tableName);
+      }
+      int oid = type[1] != 0 ? type[1] : type[0];
+      if (!SUPPORTED.contains(oid)) {
+        throw new MolgenisException(
+            "binary copy failed: type oid " + oid + " of column '" + columnNames.get(i) + "'");
+      }
+      typeOids[i] = type[0];
+      elementOids[i] = type[1];
+    }
+  }
+
+  /** values must be in the same order as the column names */
+  void write(Collection<Object> values) throws IOException {
+    if (values.size() != typeOids.length) {
+      throw new MolgenisException(
+          "binary copy failed: expected " + typeOids.length + " values, found " + values.size());
+    }
+    out.writeShort(typeOids.length);
+    int i = 0;
+    for (Object value : values) {
+      try {
+        if (elementOids[i] != 0) {
+          writeArray(out, value, elementOids[i]);
+        } else {
+          writeValue(out, value, typeOids[i]);
+        }
+      } catch (MolgenisException | ClassCastException | IllegalArgumentException e) {
+        throw new MolgenisException(
+            "binary copy failed on column '" + columnNames.get(i) + "' with value " + value, e);
+      }
+      i++;
+    }
+    count++;
+  }
+
+  /** completes the copy and returns the number of rows written */
+  long finish() throws IOException {
+    out.writeShort(-1);
+    out.flush();
+    copy.endCopy();
+    return count;
+  }
+
+  void cancel() {
+    try {
+      if (copy.isActive()) {
+        copy.cancelCopy();
+      }
+    } catch (SQLException e) {
+      // connection will be rolled back anyway
+    }
+  }
+
+  @Override
+  public void close() {
+    cancel();
+  }
+
+  private static void writeArray(DataOutputStream out, Object value, int elementOid)
+      throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    Object[] elements = toObjectArray(value);
+    boolean hasNull = Arrays.stream(elements).anyMatch(Objects::isNull);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream array = new DataOutputStream(bytes);
+    array.writeInt(elements.length > 0 ? 1 : 0); // dimensions
+    array.writeInt(hasNull ? 1 : 0);
+    array.writeInt(elementOid);
+    if (elements.length > 0) {
+      array.writeInt(elements.length);
+      array.writeInt(1); // lower bound
+      for (Object element : elements) {
+        writeValue(array, element, elementOid);
+      }
+    }
+    out.writeInt(bytes.size());
+    bytes.writeTo(out);
+  }
+
+  private static Object[] toObjectArray(Object value) {
+    if (value instanceof Object[]) {
+      return (Object[]) value;
+    } else if (value instanceof Collection) {
+      return ((Collection<?>) value).toArray();
+    }
+    return new Object[] {value};
+  }
+
+  private static void writeValue(DataOutputStream out, Object value, int oid) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    switch (oid) {
+      case BOOL:
+        out.writeInt(1);
+        out.writeByte(toBool(value) ? 1 : 0);
+        break;
+      case INT2:
+        out.writeInt(2);
+        out.writeShort(toInt(value));
+        break;
+      case INT4:
+        out.writeInt(4);
+        out.writeInt(toInt(value));
+        break;
+      case INT8:
+        out.writeInt(8);
+        out.writeLong(toInt(value));
+        break;
+      case FLOAT4:
+        out.writeInt(4);
+        out.writeFloat(toDecimal(value).floatValue());
+        break;
+      case FLOAT8:
+        out.writeInt(8);
+        out.writeDouble(toDecimal(value));
+        break;
+      case NUMERIC:
+        writeNumeric(out, toDecimal(value));
+        break;
+      case DATE:
+        out.writeInt(4);
+        out.writeInt((int) (toDate(value).toEpochDay() - PG_EPOCH_DAYS));
+        break;
+      case TIMESTAMP:
+        out.writeInt(8);
+        out.writeLong(ChronoUnit.MICROS.between(PG_EPOCH, toDateTime(value)));
+        break;
+      case UUID:
+        java.util.UUID uuid = toUuid(value);
+        out.writeInt(16);
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+        break;
+      case BYTEA:
+        byte[] binary = toBinary(value);
+        out.writeInt(binary.length);
+        out.write(binary);
+        break;
+      case JSONB:
+        byte[] jsonb = toJsonb(value).data().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(jsonb.length + 1);
+        out.writeByte(1); // jsonb binary format version
+        out.write(jsonb);
+        break;
+      case JSON:
+        writeText(out, toJsonb(value).data());
+        break;
+      default:
+        // text, varchar, bpchar
+        writeText(out, value instanceof String ? (String) value : TypeUtils.toString(value));
+    }
+  }
+
+  private static void writeText(DataOutputStream out, String value) throws IOException {
+    byte[] text = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(text.length);
+    out.write(text);
+  }
+
+  /** numeric is sent as base 10000 digits with weight, sign and display scale */
+  private static void writeNumeric(DataOutputStream out, Double value) throws IOException {
+    if (value.isNaN()) {
+      out.writeInt(8);
+      out.writeShort(0); // ndigits
+      out.writeShort(0); // weight
+      out.writeShort(0xC000); // NaN
+      out.writeShort(0); // dscale
+      return;
+    }
+    BigDecimal decimal = BigDecimal.valueOf(value);
+    int scale = Math.max(decimal.scale(), 0);
+    int padding = (4 - scale % 4) % 4;
+    BigInteger unscaled =
+        decimal.abs().setScale(scale).unscaledValue().multiply(BigInteger.TEN.pow(padding));
+    int fractionGroups = (scale + padding) / 4;
+
+    // least significant digit first
+    List<Short> digits = new ArrayList<>();
+    while (unscaled.signum() > 0) {
+      BigInteger[] qr = unscaled.divideAndRemainder(NBASE);
+      digits.add(qr[1].shortValue());
+      unscaled = qr[0];
+    }
+    int weight = digits.size() - fractionGroups - 1;
+    int skip = 0;
+    while (skip < digits.size() && digits.get(skip) == 0) {
+      skip++;
+    }
+    int ndigits = digits.size() - skip;
+
+    out.writeInt(8 + 2 * ndigits);
+    out.writeShort(ndigits);
+    out.writeShort(ndigits == 0 ? 0 : weight);
+    out.writeShort(decimal.signum() < 0 ? 0x4000 : 0);
+    out.writeShort(scale);
+    for (int i = digits.size() - 1; i >= skip; i--) {
+      out.writeShort(digits.get(i));
+    }
+  }
+}
@@ -33,6 +33,12 @@ public class SqlDatabase implements Database {
   private Map<String, SqlSchemaMetadata> schemaCache = new LinkedHashMap<>(); // cache
   private Collection<String> schemaNames = new ArrayList<>();
   private boolean inTx;
+  // for transactions: schemas are copied from 'parent' only when first used
+  private SqlDatabase parent;
+  private Set<String> removedSchemas = new HashSet<>();
+  private boolean cacheCleared = false;
+  // schemas changed within transaction, to invalidate SqlSchemaMetadataStore again after commit
+  private Set<String> changedSchemas = new HashSet<>();
   private static Logger logger = LoggerFactory.getLogger(SqlDatabase.class);
   private String INITIAL_ADMIN_PW =
       (String) EnvironmentProperty.getParameter(Constants.MOLGENIS_ADMIN_PW, ADMIN, STRING);
@@ -56,7 +62,10 @@ public class SqlDatabase implements Database {
         public void schemaChanged(String schemaName) {
           // wait until end of transaction
           if (!inTx) {
-            getSchema(schemaName).getMetadata().reload();
+            // refresh in place for those holding it; otherwise it is loaded on next use
+            if (schemaCache.containsKey(schemaName)) {
+              schemaCache.get(schemaName).reloadIfChanged();
+            }
             clearCache();
             logger.info("reload schema " + schemaName + " on schemaChanged");
           } else {
@@ -70,7 +79,7 @@ public class SqlDatabase implements Database {
           if (reloadOnCommit) {
             for (String schemaName : reloadSchemas) {
               if (getSchema(schemaName) != null) {
-                getSchema(schemaName).getMetadata().reload();
+                getSchema(schemaName).getMetadata().reloadIfChanged();
               }
               logger.info("reload schema " + schemaName + " on afterCommit");
             }
@@ -80,19 +89,42 @@ public class SqlDatabase implements Database {
           }
         }
       };
+  // invalidates the shared metadata store before notifying the listener
+  private final DatabaseListener storeListener =
+      new DatabaseListener() {
+        @Override
+        public void schemaRemoved(String name) {
+          invalidateStore(name);
+          listener.schemaRemoved(name);
+        }
+
+        @Override
+        public void userChanged() {
+          listener.userChanged();
+        }
+
+        @Override
+        public void schemaChanged(String schemaName) {
+          invalidateStore(schemaName);
+          listener.schemaChanged(schemaName);
+        }
+
+        @Override
+        public void afterCommit() {
+          listener.afterCommit();
+        }
+      };
 
   // copy constructor for transactions; only with its own jooq instance that contains tx
   private SqlDatabase(DSLContext jooq, SqlDatabase copy) {
     this.connectionProvider = new SqlUserAwareConnectionProvider(source);
     this.connectionProvider.setActiveUser(copy.connectionProvider.getActiveUser());
     this.jooq = jooq;
-    databaseVersion = MetadataUtils.getVersion(jooq);
+    this.databaseVersion = copy.databaseVersion;
+    this.parent = copy;
 
-    // copy all schemas
+    // schemas are copied on first use in getSchema, so untouched schemas are not copied
     this.schemaNames.addAll(copy.schemaNames);
-    for (Map.Entry<String, SqlSchemaMetadata> schema : copy.schemaCache.entrySet()) {
-      this.schemaCache.put(schema.getKey(), new SqlSchemaMetadata(this, schema.getValue()));
-    }
   }
 
   private void setJooq(DSLContext ctx) {
@@ -147,6 +179,9 @@ public class SqlDatabase implements Database {
       dataSource.setPassword(pass);
 
       source = dataSource;
+
+      // so caches are invalidated when other nodes change schemas
+      SqlSchemaChangeNotifier.startListening(url, user, pass);
     }
   }
 
@@ -195,7 +230,17 @@ public class SqlDatabase implements Database {
 
   @Override
   public DatabaseListener getListener() {
-    return this.listener;
+    return this.storeListener;
+  }
+
+  private void invalidateStore(String schemaName) {
+    if (inTx) {
+      // other sessions might load the old state before we commit
+      changedSchemas.add(schemaName);
+    }
+    SqlSchemaMetadataStore.invalidate(schemaName);
+    // within transaction only delivered on commit
+    SqlSchemaChangeNotifier.notify(jooq, schemaName);
   }
 
   private void log(long start, String message) {
@@ -230,13 +275,28 @@ public class SqlDatabase implements Database {
   public SqlSchema getSchema(String name) {
     if (schemaCache.containsKey(name)) {
       return new SqlSchema(this, schemaCache.get(name));
-    } else {
+    } else if (parent != null
+        && !cacheCleared
+        && !removedSchemas.contains(name)
+        && parent.schemaCache.containsKey(name)) {
+      // copy on first use within transaction
+      SqlSchemaMetadata metadata = new SqlSchemaMetadata(this, parent.schemaCache.get(name));
+      schemaCache.put(name, metadata);
+      return new SqlSchema(this, metadata);
+    } else if (inTx) {
+      // might see uncommitted changes, so don't use shared store
       SqlSchemaMetadata metadata = new SqlSchemaMetadata(this, name);
       if (metadata.exists()) {
         SqlSchema schema = new SqlSchema(this, metadata);
         schemaCache.put(name, metadata); // cache
         return schema;
       }
+    } else {
+      SqlSchemaMetadata metadata = SqlSchemaMetadataStore.getSchemaMetadata(this, name);
+      if (metadata != null) {
+        schemaCache.put(name, metadata); // cache
+        return new SqlSchema(this, metadata);
+      }
     }
     return null;
   }
@@ -249,9 +309,10 @@ public class SqlDatabase implements Database {
           SqlSchemaMetadataExecutor.executeDropSchema((SqlDatabase) database, name);
           ((SqlDatabase) database).schemaNames.remove(name);
           ((SqlDatabase) database).schemaCache.remove(name);
+          ((SqlDatabase) database).removedSchemas.add(name);
         });
 
-    listener.schemaRemoved(name);
+    getListener().schemaRemoved(name);
     log(start, "dropped schema " + name);
   }
 
@@ -266,13 +327,18 @@ public class SqlDatabase implements Database {
           executeCreateSchema((SqlDatabase) db, metadata);
           ((SqlDatabase) db).schemaCache.put(name, new SqlSchemaMetadata(db, metadata));
         });
+    invalidateStore(name);
     return getSchema(name);
   }
 
   @Override
   public Collection<String> getSchemaNames() {
     if (this.schemaNames.isEmpty()) {
-      this.schemaNames = MetadataUtils.loadSchemaNames(this);
+      if (inTx) {
+        this.schemaNames = MetadataUtils.loadSchemaNames(this);
+      } else {
+        this.schemaNames = new ArrayList<>(SqlSchemaMetadataStore.getSchemaNames(this));
+      }
     }
     return this.schemaNames;
   }
@@ -355,6 +421,8 @@ public class SqlDatabase implements Database {
     if (inTx) {
       try {
         jooq.execute("SET SESSION AUTHORIZATION {0}", name(MG_USER_PREFIX + username));
+        // might be rolled back, so let the connection provider reapply it on next use
+        jooq.connection(SqlUserAwareConnectionProvider::forgetAuthorization);
       } catch (DataAccessException dae) {
         throw new SqlMolgenisException("Set active user failed", dae);
       }
@@ -368,11 +436,14 @@ public class SqlDatabase implements Database {
     listener.userChanged();
   }
 
+  /**
+   * returns the user tracked in-process instead of querying SESSION_USER. The connection provider
+   * sets session authorization to this user when acquiring a connection, and within a transaction
+   * setActiveUser/clearActiveUser change both the session and this value, so they stay in sync
+   */
   @Override
   public String getActiveUser() {
-    String user = jooq.fetchOne("SELECT SESSION_USER").get(0, String.class);
-    if (user.contains(MG_USER_PREFIX)) return user.substring(MG_USER_PREFIX.length());
-    return null;
+    return connectionProvider.getActiveUser();
   }
 
   @Override
@@ -381,6 +452,7 @@ public class SqlDatabase implements Database {
       // then we don't use the connection provider
       try {
         jooq.execute("RESET SESSION AUTHORIZATION");
+        jooq.connection(SqlUserAwareConnectionProvider::forgetAuthorization);
       } catch (DataAccessException dae) {
         throw new SqlMolgenisException("Clear active user failed", dae);
       }
@@ -415,6 +487,7 @@ public class SqlDatabase implements Database {
             });
         // only when commit succeeds we copy state to 'this'
         this.sync(db);
+        db.changedSchemas.forEach(SqlSchemaMetadataStore::invalidate);
       } catch (DataAccessException e) {
         throw new SqlMolgenisException("Transaction failed", e);
       } catch (Exception e) {
@@ -434,10 +507,11 @@ public class SqlDatabase implements Database {
 
       this.schemaNames = from.schemaNames;
 
-      // remove schemas that were dropped
-      this.schemaCache.keySet().stream()
-          .filter(s -> !from.schemaCache.keySet().contains(s))
-          .forEach(s -> this.schemaCache.remove(s));
+      // remove schemas that were dropped; schemas not used in the tx are unchanged
+      if (from.cacheCleared) {
+        this.schemaCache.clear();
+      }
+      from.removedSchemas.forEach(s -> this.schemaCache.remove(s));
 
       // sync the existing schema cache, add missing
       from.schemaCache
@@ -463,6 +537,9 @@ public class SqlDatabase implements Database {
   public void clearCache() {
     this.schemaCache.clear();
     this.schemaNames.clear();
+    if (inTx) {
+      this.cacheCleared = true;
+    }
   }
 
   protected DSLContext getJooq() {
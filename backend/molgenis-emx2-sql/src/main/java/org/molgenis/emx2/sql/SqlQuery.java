@@ -11,17 +11,21 @@ import static org.molgenis.emx2.sql.SqlColumnExecutor.getJoinTableName;
 import static org.molgenis.emx2.sql.SqlTableMetadataExecutor.searchColumnName;
 import static org.molgenis.emx2.utils.TypeUtils.*;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import org.jooq.*;
 import org.jooq.Table;
 import org.jooq.conf.ParamType;
 import org.jooq.exception.DataAccessException;
 import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
 import org.jooq.util.postgres.PostgresDSL;
 import org.molgenis.emx2.*;
 import org.molgenis.emx2.Operator;
@@ -37,12 +41,16 @@ public class SqlQuery extends QueryBean {
   public static final String MIN_FIELD = "min";
   public static final String AVG_FIELD = "avg";
   public static final String SUM_FIELD = "sum";
+  public static final String CURSOR_FIELD = "_cursor";
 
   private static final String QUERY_FAILED = "Query failed: ";
   private static final String ANY_SQL = "{0} = ANY ({1})";
   private static final String JSON_AGG_SQL = "json_agg(item)";
   private static final String ROW_TO_JSON_SQL = "row_to_json(item)";
   private static final String ITEM = "item";
+  private static final String CURSOR_SQL =
+      "translate(encode(convert_to(json_build_array(%s)::text, 'UTF8'), 'base64'), chr(10), '')";
+  private static final ObjectMapper jsonMapper = new ObjectMapper();
   private static final String OPERATOR_NOT_SUPPORTED_ERROR_MESSAGE =
       "Operator %s is not support for column '%s'";
   private static final String BETWEEN_ERROR_MESSAGE =
@@ -65,6 +73,87 @@ public class SqlQuery extends QueryBean {
 
   @Override
   public List<Row> retrieveRows() {
+    SelectConnectByStep<org.jooq.Record> query = getRowQuery();
+
+    // execute
+    try {
+      List<Row> result = new ArrayList<>();
+      if (logger.isInfoEnabled()) {
+        logger.info(query.getSQL(ParamType.INLINED));
+      }
+      Result<org.jooq.Record> fetch = query.fetch();
+      for (org.jooq.Record r : fetch) {
+        result.add(new SqlRow(r));
+      }
+      // 'before' reads backwards from the cursor, so restore the requested order
+      if (getSelect().getBefore() != null) {
+        Collections.reverse(result);
+      }
+      return result;
+    } catch (DataAccessException | SQLException e) {
+      throw new MolgenisException(QUERY_FAILED, e);
+    }
+  }
+
+  @Override
+  public Stream<Row> retrieveRowStream() {
+    if (getSelect().getBefore() != null) {
+      throw new MolgenisException(
+          QUERY_FAILED + "'before' cannot be used when streaming rows, use 'after' instead");
+    }
+    SelectConnectByStep<org.jooq.Record> query = getRowQuery();
+    if (logger.isInfoEnabled()) {
+      logger.info(query.getSQL(ParamType.INLINED));
+    }
+
+    // when in transaction this is the transaction connection, otherwise a new one from the pool
+    ConnectionProvider provider = schema.getJooq().configuration().connectionProvider();
+    Connection connection = provider.acquire();
+    try {
+      // postgresql only uses a server side cursor when not in autocommit mode
+      boolean autoCommit = connection.getAutoCommit();
+      if (autoCommit) {
+        connection.setAutoCommit(false);
+      }
+      Cursor<org.jooq.Record> cursor =
+          DSL.using(connection, SQLDialect.POSTGRES).fetchLazy(query.fetchSize(getFetchSize()));
+      return cursor.stream()
+          .map(SqlQuery::toRow)
+          .onClose(() -> closeCursor(provider, connection, cursor, autoCommit));
+    } catch (DataAccessException | SQLException e) {
+      provider.release(connection);
+      throw new MolgenisException(QUERY_FAILED, e);
+    }
+  }
+
+  private static Row toRow(org.jooq.Record record) {
+    try {
+      return new SqlRow(record);
+    } catch (SQLException e) {
+      throw new MolgenisException(QUERY_FAILED, e);
+    }
+  }
+
+  private static void closeCursor(
+      ConnectionProvider provider,
+      Connection connection,
+      Cursor<org.jooq.Record> cursor,
+      boolean autoCommit) {
+    try {
+      cursor.close();
+      if (autoCommit) {
+        // read only, so commit only ends the transaction we started for the cursor
+        connection.commit();
+        connection.setAutoCommit(true);
+      }
+    } catch (DataAccessException | SQLException e) {
+      throw new MolgenisException(QUERY_FAILED, e);
+    } finally {
+      provider.release(connection);
+    }
+  }
+
+  private SelectConnectByStep<org.jooq.Record> getRowQuery() {
     SelectColumn select = getSelect();
     Filter filter = getFilter();
     String[] searchTerms = getSearchTerms();
@@ -110,23 +199,12 @@ public class SqlQuery extends QueryBean {
 
     // where
     Condition condition = whereConditions(table, tableAlias, filter, searchTerms);
-    SelectConnectByStep<org.jooq.Record> where = condition != null ? from.where(condition) : from;
-    SelectConnectByStep<org.jooq.Record> query = limitOffsetOrderBy(select, where);
-
-    // execute
-    try {
-      List<Row> result = new ArrayList<>();
-      if (logger.isInfoEnabled()) {
-        logger.info(query.getSQL(ParamType.INLINED));
-      }
-      Result<org.jooq.Record> fetch = query.fetch();
-      for (org.jooq.Record r : fetch) {
-        result.add(new SqlRow(r));
-      }
-      return result;
-    } catch (DataAccessException | SQLException e) {
-      throw new MolgenisException(QUERY_FAILED, e);
+    Condition keyset = keysetCondition(table, tableAlias, select);
+    if (keyset != null) {
+      condition = condition != null ? and(condition, keyset) : keyset;
     }
+    SelectConnectByStep<org.jooq.Record> where = condition != null ? from.where(condition) : from;
+    return limitOffsetOrderBy(table, tableAlias, select, where);
   }
 
   // todo: allow query expansion accross tables?
@@ -135,6 +213,12 @@ public class SqlQuery extends QueryBean {
 
     List<Field<?>> fields = new ArrayList<>();
     for (SelectColumn select : selection.getSubselect()) {
+      if (CURSOR_FIELD.equals(select.getColumn())) {
+        fields.add(
+            keysetCursorField(table, tableAlias, selection)
+                .as(prefix.equals("") ? CURSOR_FIELD : prefix + "-" + CURSOR_FIELD));
+        continue;
+      }
       Column column = isValidColumn(table, select.getColumn());
       String columnAlias = prefix.equals("") ? column.getName() : prefix + "-" + column.getName();
       if (FILE.equals(column.getColumnType())) {
@@ -305,11 +389,16 @@ public class SqlQuery extends QueryBean {
             .from(tableWithInheritanceJoin(table).as(subAlias));
 
     List<Condition> conditions = new ArrayList<>();
+    Condition keyset = keysetCondition(table, null, select);
     Select<org.jooq.Record> filterQuery =
         limitOffsetOrderBy(
-            select, jsonFilterQuery(table, column, tableAlias, subAlias, filters, searchTerms));
+            table,
+            null,
+            select,
+            jsonFilterQuery(table, column, tableAlias, subAlias, filters, searchTerms, keyset));
     if (filters != null
         || searchTerms.length > 0
+        || keyset != null
         || select.getLimit() > 0
         || select.getOffset() > 0) {
       List<Field> pkeyFields = table.getPrimaryKeyFields();
@@ -326,7 +415,8 @@ public class SqlQuery extends QueryBean {
     String agg =
         column != null && REF.equals(column.getColumnType()) ? ROW_TO_JSON_SQL : JSON_AGG_SQL;
 
-    return field(jooq.select(field(agg)).from(orderBy(select, from).asTable(ITEM)))
+    return field(
+            jooq.select(field(agg)).from(orderBy(table, null, select, from, false).asTable(ITEM)))
         .as(select.getColumn());
   }
 
@@ -337,6 +427,17 @@ public class SqlQuery extends QueryBean {
       String subAlias,
       Filter filters,
       String[] searchTerms) {
+    return jsonFilterQuery(table, column, tableAlias, subAlias, filters, searchTerms, null);
+  }
+
+  private static SelectConditionStep<org.jooq.Record> jsonFilterQuery(
+      SqlTableMetadata table,
+      Column column,
+      String tableAlias,
+      String subAlias,
+      Filter filters,
+      String[] searchTerms,
+      Condition keyset) {
 
     List<Condition> conditions = new ArrayList<>();
     if (filters != null) {
@@ -346,6 +447,9 @@ public class SqlQuery extends QueryBean {
     if (searchTerms.length > 0) {
       conditions.add(jsonSearchConditions(table, searchTerms));
     }
+    if (keyset != null) {
+      conditions.add(keyset);
+    }
 
     // create the subquery
     if (!conditions.isEmpty()) {
@@ -510,6 +614,10 @@ public class SqlQuery extends QueryBean {
     }
 
     for (SelectColumn select : selection.getSubselect()) {
+      if (CURSOR_FIELD.equals(select.getColumn())) {
+        fields.add(keysetCursorField(table, tableAlias, selection).as(CURSOR_FIELD));
+        continue;
+      }
       Column column =
           select.getColumn().endsWith("_agg")
               ? isValidColumn(table, select.getColumn().replace("_agg", ""))
@@ -823,6 +931,9 @@ public class SqlQuery extends QueryBean {
     // add missing selection joins, only used for row based queries
     if (selection != null) {
       for (SelectColumn select : selection.getSubselect()) {
+        if (CURSOR_FIELD.equals(select.getColumn())) {
+          continue;
+        }
         // then do same as above
         Column column = isValidColumn(table, select.getColumn());
         if (column.isReference()) {
@@ -1278,25 +1389,180 @@ public class SqlQuery extends QueryBean {
   }
 
   private static SelectJoinStep<org.jooq.Record> limitOffsetOrderBy(
-      SelectColumn select, SelectConnectByStep<org.jooq.Record> query) {
-    query = orderBy(select, (SelectJoinStep) query);
+      TableMetadata table,
+      String tableAlias,
+      SelectColumn select,
+      SelectConnectByStep<org.jooq.Record> query) {
+    // 'before' reads backwards from the cursor; the order is restored by the caller
+    query = orderBy(table, tableAlias, select, (SelectJoinStep) query, select.getBefore() != null);
     if (select.getLimit() > 0) query = (SelectConditionStep) query.limit(select.getLimit());
     if (select.getOffset() > 0) query = (SelectConditionStep) query.offset(select.getOffset());
     return (SelectJoinStep<org.jooq.Record>) query;
   }
 
   private static SelectJoinStep<org.jooq.Record> orderBy(
-      SelectColumn select, SelectJoinStep<org.jooq.Record> query) {
-    for (Map.Entry<String, Order> col : select.getOrderBy().entrySet()) {
-      if (ASC.equals(col.getValue())) {
-        query = (SelectJoinStep<org.jooq.Record>) query.orderBy(field(name(col.getKey())).asc());
+      TableMetadata table,
+      String tableAlias,
+      SelectColumn select,
+      SelectJoinStep<org.jooq.Record> query,
+      boolean reverse) {
+    Map<String, Order> orderBy = select.getOrderBy();
+    for (Map.Entry<String, Order> col : keysetOrderBy(table, select).entrySet()) {
+      // keyset tie breakers are qualified to prevent ambiguity with joined tables
+      Field<Object> field =
+          tableAlias != null && !orderBy.containsKey(col.getKey())
+              ? field(name(tableAlias, col.getKey()))
+              : field(name(col.getKey()));
+      if (ASC.equals(col.getValue()) != reverse) {
+        query = (SelectJoinStep<org.jooq.Record>) query.orderBy(field.asc());
       } else {
-        query = (SelectJoinStep<org.jooq.Record>) query.orderBy(field(name(col.getKey())).desc());
+        query = (SelectJoinStep<org.jooq.Record>) query.orderBy(field.desc());
       }
     }
     return query;
   }
 
+  private static boolean isKeyset(SelectColumn select) {
+    return select.getAfter() != null || select.getBefore() != null || select.has(CURSOR_FIELD);
+  }
+
+  /** when using keyset pagination the primary key is added to make the order unique */
+  private static Map<String, Order> keysetOrderBy(TableMetadata table, SelectColumn select) {
+    if (!isKeyset(select)) {
+      return select.getOrderBy();
+    }
+    Map<String, Order> result = new LinkedHashMap<>(select.getOrderBy());
+    for (Field key : table.getPrimaryKeyFields()) {
+      result.putIfAbsent(key.getName(), ASC);
+    }
+    return result;
+  }
+
+  private static List<Field<?>> keysetFields(
+      TableMetadata table, String tableAlias, Collection<String> names) {
+    List<Field<?>> result = new ArrayList<>();
+    for (String name : names) {
+      Field<?> field = null;
+      for (Field<?> key : table.getPrimaryKeyFields()) {
+        if (key.getName().equals(name)) {
+          field = key;
+        }
+      }
+      if (field == null) {
+        Column column = isValidColumn(table, name);
+        if (column.isReference()) {
+          for (Reference ref : column.getReferences()) {
+            if (ref.getName().equals(name)) {
+              field = ref.getJooqField();
+            }
+          }
+          if (field == null) {
+            throw new MolgenisException(
+                QUERY_FAILED
+                    + "cannot paginate on composite reference '"
+                    + name
+                    + "', order by its underlying fields instead");
+          }
+        } else {
+          field = column.getJooqField();
+        }
+      }
+      result.add(
+          tableAlias != null ? field(name(tableAlias, field.getName()), field.getDataType()) : field);
+    }
+    return result;
+  }
+
+  private static Field<String> keysetCursorField(
+      TableMetadata table, String tableAlias, SelectColumn select) {
+    List<Field<?>> fields = keysetFields(table, tableAlias, keysetOrderBy(table, select).keySet());
+    // json_build_array({0}::varchar, {1}::varchar, ...)
+    String placeholders =
+        IntStream.range(0, fields.size())
+            .mapToObj(i -> "{" + i + "}::varchar")
+            .collect(Collectors.joining(","));
+    return field(
+        String.format(CURSOR_SQL, placeholders),
+        SQLDataType.VARCHAR,
+        fields.toArray(new QueryPart[0]));
+  }
+
+  /**
+   * Creates the 'seek' condition for keyset pagination, i.e. all rows that sort after (or before)
+   * the row the cursor was created from. Because the primary key is part of the order this is
+   * unique, so page N costs the same as page 1.
+   */
+  private static Condition keysetCondition(
+      TableMetadata table, String tableAlias, SelectColumn select) {
+    if (select.getAfter() != null && select.getBefore() != null) {
+      throw new MolgenisException(QUERY_FAILED + "cannot combine 'after' and 'before'");
+    }
+    String cursor = select.getAfter() != null ? select.getAfter() : select.getBefore();
+    if (cursor == null) {
+      return null;
+    }
+    boolean reverse = select.getAfter() == null;
+    Map<String, Order> orderBy = keysetOrderBy(table, select);
+    List<Field<?>> fields = keysetFields(table, tableAlias, orderBy.keySet());
+    List<String> values = decodeCursor(cursor, fields.size());
+
+    List<Boolean> ascending = new ArrayList<>();
+    List<Field<?>> params = new ArrayList<>();
+    boolean sameDirection = true;
+    boolean notNull = true;
+    int i = 0;
+    for (Map.Entry<String, Order> col : orderBy.entrySet()) {
+      ascending.add(ASC.equals(col.getValue()) != reverse);
+      sameDirection = sameDirection && ascending.get(i).equals(ascending.get(0));
+      notNull =
+          notNull
+              && values.get(i) != null
+              && (table.getPrimaryKeys().contains(col.getKey())
+                  || isValidColumn(table, col.getKey()).isRequired());
+      params.add(cast(val(values.get(i)), fields.get(i).getDataType()));
+      i++;
+    }
+
+    // row value comparison can use the index, but only works without nulls and mixed order
+    if (sameDirection && notNull) {
+      return ascending.get(0) ? row(fields).gt(row(params)) : row(fields).lt(row(params));
+    }
+
+    // otherwise (a > x) or (a = x and b > y) or ..., noting postgres sorts nulls as largest
+    List<Condition> result = new ArrayList<>();
+    List<Condition> equal = new ArrayList<>();
+    for (i = 0; i < fields.size(); i++) {
+      Field<Object> field = (Field<Object>) fields.get(i);
+      Field<Object> param = (Field<Object>) params.get(i);
+      Condition next;
+      if (values.get(i) == null) {
+        next = ascending.get(i) ? falseCondition() : field.isNotNull();
+      } else {
+        next = ascending.get(i) ? field.gt(param).or(field.isNull()) : field.lt(param);
+      }
+      List<Condition> step = new ArrayList<>(equal);
+      step.add(next);
+      result.add(and(step));
+      equal.add(values.get(i) == null ? field.isNull() : field.eq(param));
+    }
+    return or(result);
+  }
+
+  private static List<String> decodeCursor(String cursor, int size) {
+    try {
+      List<String> values =
+          jsonMapper.readValue(
+              new String(Base64.getDecoder().decode(cursor), StandardCharsets.UTF_8), List.class);
+      if (values.size() != size) {
+        throw new MolgenisException(
+            QUERY_FAILED + "cursor '" + cursor + "' doesn't match the order of this query");
+      }
+      return values;
+    } catch (IllegalArgumentException | JsonProcessingException e) {
+      throw new MolgenisException(QUERY_FAILED + "invalid cursor '" + cursor + "'", e);
+    }
+  }
+
   private static Column isValidColumn(TableMetadata table, String columnName) {
     // is search?
     if (TEXT_SEARCH_COLUMN_NAME.equals(columnName)) {
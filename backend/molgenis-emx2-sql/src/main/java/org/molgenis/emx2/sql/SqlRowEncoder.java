@@ -0,0 +1,233 @@
+package org.molgenis.emx2.sql;
+
+import static org.molgenis.emx2.utils.JavaScriptUtils.*;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import org.jooq.Field;
+import org.molgenis.emx2.Column;
+import org.molgenis.emx2.Constants;
+import org.molgenis.emx2.MolgenisException;
+import org.molgenis.emx2.Row;
+import org.molgenis.emx2.utils.TypeUtils;
+
+/**
+ * Converts rows into value arrays for one table and one set of provided columns. Column order,
+ * converters and jOOQ fields are resolved once when created, instead of for every row as
+ * SqlTypeUtils.getValuesAsMap does. Produces the same values as getValuesAsMap.
+ */
+class SqlRowEncoder {
+  private final List<Column> columns;
+  private final List<Field> fields;
+  private final List<Column> required;
+  private final String[] names;
+  private final Function<Object, Object>[] converters;
+  private final String[] computed;
+  private final String[] validations;
+  private final int editRoleIndex;
+
+  SqlRowEncoder(Collection<Column> columns, Collection<Column> requiredCandidates) {
+    this.columns = List.copyOf(columns);
+    int size = this.columns.size();
+    List<Field> fieldList = new ArrayList<>(size);
+    this.names = new String[size];
+    this.converters = new Function[size];
+    this.computed = new String[size];
+    this.validations = new String[size];
+    int editRole = -1;
+    for (int i = 0; i < size; i++) {
+      Column c = this.columns.get(i);
+      fieldList.add(c.getJooqField());
+      names[i] = c.getName();
+      computed[i] = c.getComputed();
+      validations[i] = c.getValidation();
+      if (c.getComputed() == null) {
+        converters[i] = getConverter(c);
+      }
+      if (Constants.MG_EDIT_ROLE.equals(c.getName())) {
+        editRole = i;
+      }
+    }
+    this.fields = Collections.unmodifiableList(fieldList);
+    this.editRoleIndex = editRole;
+    List<Column> requiredList = new ArrayList<>();
+    for (Column c : requiredCandidates) {
+      if (c.isRequired()) {
+        requiredList.add(c);
+      }
+    }
+    this.required = Collections.unmodifiableList(requiredList);
+  }
+
+  List<Column> getColumns() {
+    return columns;
+  }
+
+  List<Field> getFields() {
+    return fields;
+  }
+
+  int size() {
+    return names.length;
+  }
+
+  void checkRequired(Row row) {
+    for (Column c : required) {
+      if (row.isNull(c.getName(), c.getColumnType())) {
+        throw new MolgenisException("column '" + c.getName() + "' is required in " + row);
+      }
+    }
+  }
+
+  /**
+   * writes the values of the row into target[0..size()), so callers can reuse target and append
+   * their own values after it
+   */
+  Object[] encode(Row row, Object[] target) {
+    Map<String, Object> values = row.getValueMap();
+    try {
+      for (int i = 0; i < names.length; i++) {
+        Object value;
+        if (computed[i] == null) {
+          value = converters[i].apply(values.get(names[i]));
+        } else if (values.containsKey(computed[i])) {
+          value = values.get(computed[i]);
+        } else {
+          value = executeJavascriptOnRow(computed[i], row);
+        }
+        if (value != null && validations[i] != null) {
+          checkValidation(i, value, executeJavascriptOnValue(validations[i], value));
+        }
+        target[i] = i == editRoleIndex ? getEditRole(values) : value;
+      }
+      return target;
+    } catch (MolgenisException me) {
+      throw new MolgenisException("Parsing of row failed: " + row.toString(), me);
+    }
+  }
+
+  /**
+   * same as encode(Row, Object[]) for a batch of rows, passing target to consumer for each row. The
+   * javascript of computed and validation columns is evaluated once per column for the whole
+   * batch, instead of for each row. Validation errors are thrown after all rows are passed.
+   */
+  void encode(List<Row> rows, Object[] target, BiConsumer<Row, Object[]> consumer) {
+    Iterator<String>[] computedValues = new Iterator[names.length];
+    List<Object>[] validatedValues = new List[names.length];
+    List<Row>[] validatedRows = new List[names.length];
+    for (int i = 0; i < names.length; i++) {
+      if (computed[i] != null) {
+        List<Row> toCompute = new ArrayList<>();
+        for (Row row : rows) {
+          if (!row.getValueMap().containsKey(computed[i])) {
+            toCompute.add(row);
+          }
+        }
+        computedValues[i] = executeJavascriptOnRows(computed[i], toCompute).iterator();
+      }
+      if (validations[i] != null) {
+        validatedValues[i] = new ArrayList<>();
+        validatedRows[i] = new ArrayList<>();
+      }
+    }
+
+    for (Row row : rows) {
+      Map<String, Object> values = row.getValueMap();
+      try {
+        for (int i = 0; i < names.length; i++) {
+          Object value;
+          if (computed[i] == null) {
+            value = converters[i].apply(values.get(names[i]));
+          } else if (values.containsKey(computed[i])) {
+            value = values.get(computed[i]);
+          } else {
+            value = computedValues[i].next();
+          }
+          if (value != null && validations[i] != null) {
+            validatedValues[i].add(value);
+            validatedRows[i].add(row);
+          }
+          target[i] = i == editRoleIndex ? getEditRole(values) : value;
+        }
+      } catch (MolgenisException me) {
+        throw new MolgenisException("Parsing of row failed: " + row.toString(), me);
+      }
+      consumer.accept(row, target);
+    }
+
+    for (int i = 0; i < names.length; i++) {
+      if (validations[i] != null) {
+        List<String> errors = executeJavascriptOnValues(validations[i], validatedValues[i]);
+        for (int j = 0; j < errors.size(); j++) {
+          try {
+            checkValidation(i, validatedValues[i].get(j), errors.get(j));
+          } catch (MolgenisException me) {
+            throw new MolgenisException(
+                "Parsing of row failed: " + validatedRows[i].get(j).toString(), me);
+          }
+        }
+      }
+    }
+  }
+
+  private void checkValidation(int i, Object value, String error) {
+    if (error != null)
+      throw new MolgenisException(
+          "Validation error on column '"
+              + names[i]
+              + "'"
+              + error
+              + ". Instead found value '"
+              + value
+              + "'");
+  }
+
+  private Object getEditRole(Map<String, Object> values) {
+    return Constants.MG_USER_PREFIX + TypeUtils.toString(values.get(names[editRoleIndex]));
+  }
+
+  private static Function<Object, Object> getConverter(Column c) {
+    switch (c.getPrimitiveColumnType()) {
+      case FILE:
+        return TypeUtils::toBinary;
+      case UUID:
+        return TypeUtils::toUuid;
+      case UUID_ARRAY:
+        return TypeUtils::toUuidArray;
+      case STRING:
+      case TEXT:
+        return TypeUtils::toString;
+      case STRING_ARRAY:
+      case TEXT_ARRAY:
+        return TypeUtils::toStringArray;
+      case BOOL:
+        return TypeUtils::toBool;
+      case BOOL_ARRAY:
+        return TypeUtils::toBoolArray;
+      case INT:
+        return TypeUtils::toInt;
+      case INT_ARRAY:
+        return TypeUtils::toIntArray;
+      case DECIMAL:
+        return TypeUtils::toDecimal;
+      case DECIMAL_ARRAY:
+        return TypeUtils::toDecimalArray;
+      case DATE:
+        return TypeUtils::toDate;
+      case DATE_ARRAY:
+        return TypeUtils::toDateArray;
+      case DATETIME:
+        return TypeUtils::toDateTime;
+      case DATETIME_ARRAY:
+        return TypeUtils::toDateTimeArray;
+      case JSONB:
+        return TypeUtils::toJsonb;
+      case JSONB_ARRAY:
+        return TypeUtils::toJsonbArray;
+      default:
+        throw new UnsupportedOperationException(
+            "Unsupported columnType found:" + c.getColumnType());
+    }
+  }
+}
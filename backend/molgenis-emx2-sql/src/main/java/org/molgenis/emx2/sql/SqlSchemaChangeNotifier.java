@@ -0,0 +1,107 @@
+package org.molgenis.emx2.sql;
+
+import static org.jooq.impl.DSL.val;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.jooq.DSLContext;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tells other nodes of a cluster that schema metadata changed, using postgresql LISTEN/NOTIFY. Each
+ * node listens on its own connection and invalidates SqlSchemaMetadataStore plus anything
+ * registered via addListener when another node changed a schema. Notifications sent within a
+ * transaction are only delivered on commit, so other nodes never reload uncommitted state.
+ */
+public class SqlSchemaChangeNotifier {
+  private static final Logger logger = LoggerFactory.getLogger(SqlSchemaChangeNotifier.class);
+  private static final String CHANNEL = "molgenis_schema_changed";
+  private static final String SEPARATOR = ":";
+  private static final int POLL_MILLIS = 10000;
+  private static final int RETRY_MILLIS = 5000;
+  // to recognize our own notifications
+  private static final String NODE_ID = UUID.randomUUID().toString();
+  private static final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+  private static Thread thread;
+
+  private SqlSchemaChangeNotifier() {
+    // hide constructor
+  }
+
+  /** to be notified with the schema name when another node changed that schema */
+  public static void addListener(Consumer<String> listener) {
+    listeners.add(listener);
+  }
+
+  public static void removeListener(Consumer<String> listener) {
+    listeners.remove(listener);
+  }
+
+  static void notify(DSLContext jooq, String schemaName) {
+    jooq.execute("SELECT pg_notify({0}, {1})", val(CHANNEL), val(NODE_ID + SEPARATOR + schemaName));
+  }
+
+  static synchronized void startListening(String url, String user, String password) {
+    if (thread == null) {
+      thread = new Thread(() -> listen(url, user, password), "schema-change-listener");
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+
+  // uses its own connection because it is kept open forever
+  private static void listen(String url, String user, String password) {
+    while (!Thread.currentThread().isInterrupted()) {
+      try (Connection connection = DriverManager.getConnection(url, user, password)) {
+        try (Statement statement = connection.createStatement()) {
+          statement.execute("LISTEN " + CHANNEL);
+        }
+        // we might have missed notifications while not listening
+        SqlSchemaMetadataStore.invalidateAll();
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        logger.info("listening for schema changes of other nodes");
+        while (!Thread.currentThread().isInterrupted()) {
+          PGNotification[] notifications = pgConnection.getNotifications(POLL_MILLIS);
+          if (notifications != null) {
+            for (PGNotification notification : notifications) {
+              handle(notification.getParameter());
+            }
+          }
+        }
+      } catch (SQLException e) {
+        logger.warn("listening for schema changes failed, retrying: {}", e.getMessage());
+        try {
+          Thread.sleep(RETRY_MILLIS);
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  private static void handle(String payload) {
+    int index = payload.indexOf(SEPARATOR);
+    if (index < 0 || NODE_ID.equals(payload.substring(0, index))) {
+      return;
+    }
+    String schemaName = payload.substring(index + 1);
+    logger.info("schema '{}' changed on other node", schemaName);
+    SqlSchemaMetadataStore.invalidate(schemaName);
+    for (Consumer<String> listener : listeners) {
+      try {
+        listener.accept(schemaName);
+      } catch (RuntimeException e) {
+        logger.error("schema change listener failed", e);
+      }
+    }
+  }
+}
@@ -15,6 +15,8 @@ import org.slf4j.LoggerFactory;
 
 public class SqlSchemaMetadata extends SchemaMetadata {
   private static Logger logger = LoggerFactory.getLogger(SqlSchemaMetadata.class);
+  // version in MOLGENIS.schema_metadata of the loaded metadata, see reloadIfChanged
+  private long version = -1;
 
   // copy constructor
   protected SqlSchemaMetadata(Database db, SqlSchemaMetadata copy) {
@@ -23,9 +25,33 @@ public class SqlSchemaMetadata extends SchemaMetadata {
     this.sync(copy);
   }
 
+  /**
+   * copy bound to db that shares the columns of the tables of shared, which therefore must not be
+   * changed anymore. Tables are bound to the database so these are copied, but their columns are
+   * only copied when a table is changed.
+   */
+  static SqlSchemaMetadata share(Database db, SqlSchemaMetadata shared) {
+    SqlSchemaMetadata result = new SqlSchemaMetadata(db, shared.getName(), shared.version);
+    for (TableMetadata table : shared.tables.values()) {
+      result.tables.put(
+          table.getTableName(), new SqlTableMetadata(result, (SqlTableMetadata) table, true));
+    }
+    for (Setting setting : shared.settings.values()) {
+      result.settings.put(setting.getKey(), setting);
+    }
+    return result;
+  }
+
+  private SqlSchemaMetadata(Database db, String name, long version) {
+    this.name = name;
+    this.database = db;
+    this.version = version;
+  }
+
   public synchronized void sync(SqlSchemaMetadata from) {
     if (from != this) {
       // database is excluded from sync
+      this.version = from.version;
 
       // remove tables not available anymore
       Set<String> remove =
@@ -74,6 +100,8 @@ public class SqlSchemaMetadata extends SchemaMetadata {
       logger.info("loading schema '{}' as user {}", getName(), getDatabase().getActiveUser());
     }
     long start = System.currentTimeMillis();
+    // read before loading, so concurrent changes result in reload on next check
+    this.version = MetadataUtils.loadSchemaVersion(getDatabase().getJooq(), getName());
     this.tables.clear();
     this.settings.clear();
     for (TableMetadata table : MetadataUtils.loadTables(getDatabase().getJooq(), this)) {
@@ -88,6 +116,25 @@ public class SqlSchemaMetadata extends SchemaMetadata {
     }
   }
 
+  /**
+   * reloads only if the metadata version in the database differs from the loaded one, which costs
+   * one small query otherwise
+   *
+   * @return true if reloaded
+   */
+  public boolean reloadIfChanged() {
+    if (MetadataUtils.loadSchemaVersion(getJooq(), getName()) != version) {
+      reload();
+      return true;
+    }
+    return false;
+  }
+
+  /** @return version of the loaded metadata, changes whenever the metadata changes */
+  public long getVersion() {
+    return version;
+  }
+
   public boolean exists() {
     return MetadataUtils.schemaExists(getDatabase().getJooq(), this.getName());
   }
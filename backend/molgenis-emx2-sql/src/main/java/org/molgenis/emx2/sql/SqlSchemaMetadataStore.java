@@ -0,0 +1,109 @@
+package org.molgenis.emx2.sql;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide store of schema metadata, shared by all SqlDatabase instances, so metadata is loaded
+ * from MOLGENIS.table_metadata/column_metadata once instead of once per session. Metadata is loaded
+ * as the database owner. Sessions get their own tables bound to their database, but these share the
+ * columns of the loaded metadata, which is never changed. Per user we only keep which schemas are
+ * visible, which row level security on MOLGENIS.schema_metadata decides. Both are invalidated when
+ * a schema changes, which includes membership changes, via the listener of SqlDatabase.
+ */
+class SqlSchemaMetadataStore {
+  private static final String OWNER = "";
+  private static final Map<String, SqlSchemaMetadata> schemas = new ConcurrentHashMap<>();
+  private static final Map<String, Set<String>> visibleSchemas = new ConcurrentHashMap<>();
+  // incremented on each invalidation, so loads that overlap an invalidation are not kept
+  private static final AtomicLong version = new AtomicLong();
+  private static SqlDatabase owner;
+
+  private SqlSchemaMetadataStore() {
+    // hide constructor
+  }
+
+  /**
+   * @return a copy of the schema metadata bound to db, sharing its columns, or null if the schema
+   *     doesn't exist or is not visible for the active user of db. Must not be used within
+   *     transactions because those can see uncommitted changes.
+   */
+  static SqlSchemaMetadata getSchemaMetadata(SqlDatabase db, String name) {
+    if (!getSchemaNames(db).contains(name)) {
+      return null;
+    }
+    // also catches changes we were not notified of, e.g. when the notifier was disconnected
+    long current = MetadataUtils.loadSchemaVersion(db.getJooq(), name);
+    if (current == -1) {
+      // dropped, so also visibility is outdated
+      invalidate(name);
+      return null;
+    }
+    SqlSchemaMetadata shared = schemas.get(name);
+    if (shared != null && shared.getVersion() != current) {
+      schemas.remove(name, shared);
+      shared = null;
+    }
+    if (shared == null) {
+      shared = load(name);
+    }
+    return SqlSchemaMetadata.share(db, shared);
+  }
+
+  private static SqlSchemaMetadata load(String name) {
+    long start = version.get();
+    SqlSchemaMetadata shared = new SqlSchemaMetadata(getOwner(), name);
+    schemas.put(name, shared);
+    if (version.get() != start) {
+      schemas.remove(name, shared);
+    }
+    return shared;
+  }
+
+  /** @return names of the schemas visible for the active user of db */
+  static Set<String> getSchemaNames(SqlDatabase db) {
+    String user = Objects.toString(db.getActiveUser(), OWNER);
+    Set<String> names = visibleSchemas.get(user);
+    if (names == null) {
+      long start = version.get();
+      names = Collections.unmodifiableSet(new LinkedHashSet<>(MetadataUtils.loadSchemaNames(db)));
+      visibleSchemas.put(user, names);
+      if (version.get() != start) {
+        visibleSchemas.remove(user, names);
+      }
+    }
+    return names;
+  }
+
+  static void invalidate(String schemaName) {
+    version.incrementAndGet();
+    schemas.remove(schemaName);
+    // schema changes include membership, so visibility might have changed for any user
+    visibleSchemas.clear();
+  }
+
+  static void invalidateAll() {
+    version.incrementAndGet();
+    schemas.clear();
+    visibleSchemas.clear();
+  }
+
+  private static synchronized SqlDatabase getOwner() {
+    if (owner == null) {
+      // the shared columns find the tables of other schemas via the owner, e.g. in getRefTable
+      owner =
+          new SqlDatabase(false) {
+            @Override
+            public SqlSchema getSchema(String name) {
+              SqlSchemaMetadata shared = schemas.get(name);
+              if (shared == null && MetadataUtils.schemaExists(getJooq(), name)) {
+                shared = load(name);
+              }
+              return shared != null ? new SqlSchema(this, shared) : null;
+            }
+          };
+    }
+    return owner;
+  }
+}
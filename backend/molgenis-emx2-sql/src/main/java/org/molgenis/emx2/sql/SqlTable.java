@@ -5,19 +5,24 @@ import static org.molgenis.emx2.ColumnType.*;
 import static org.molgenis.emx2.Constants.*;
 import static org.molgenis.emx2.MutationType.*;
 import static org.molgenis.emx2.sql.SqlDatabase.ADMIN;
-import static org.molgenis.emx2.sql.SqlTypeUtils.getTypedValue;
 
-import java.io.StringReader;
+import java.io.IOException;
 import java.io.Writer;
+import java.lang.reflect.Array;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.jooq.*;
+import org.jooq.exception.DataAccessException;
 import org.molgenis.emx2.*;
 import org.molgenis.emx2.Query;
 import org.molgenis.emx2.Row;
 import org.molgenis.emx2.Table;
+import org.molgenis.emx2.utils.TypeUtils;
 import org.postgresql.copy.CopyManager;
 import org.postgresql.core.BaseConnection;
 import org.slf4j.Logger;
@@ -27,6 +32,10 @@ class SqlTable implements Table {
   private SqlDatabase db;
   private SqlTableMetadata metadata;
   private static Logger logger = LoggerFactory.getLogger(SqlTable.class);
+  private static final int COPY_IN_THRESHOLD = 1000;
+  // postgresql protocol allows at most 32767 bind parameters per statement
+  private static final int MAX_BIND_PARAMETERS = 30000;
+  private static final String STAGING_ROW = "mg_staging_row";
 
   SqlTable(SqlDatabase db, SqlTableMetadata metadata) {
     this.db = db;
@@ -67,48 +76,94 @@ class SqlTable implements Table {
             });
   }
 
-  public void copyIn(Iterable<Row> rows) {
-    db.getJooq()
+  /**
+   * Bulk insert using binary COPY. Only supported for tables that are not part of inheritance and
+   * have no refback, computed or default value columns, see isCopyInSupported.
+   */
+  public int copyIn(Iterable<Row> rows) {
+    long start = System.currentTimeMillis();
+    if (!isCopyInSupported()) {
+      throw new MolgenisException(
+          "Copy into table '"
+              + getName()
+              + "' failed: not supported for tables with inheritance, refback, computed or default value columns");
+    }
+    AtomicInteger count = new AtomicInteger(0);
+    try {
+      db.tx(
+          db2 -> {
+            SqlTable table = (SqlTable) db2.getSchema(getSchema().getName()).getTable(getName());
+            count.set(copyInTransaction(table, rows));
+          });
+    } catch (Exception e) {
+      throw new SqlMolgenisException("Copy into table '" + getName() + "' failed.", e);
+    }
+    log(start, count, "copied");
+    return count.get();
+  }
+
+  boolean isCopyInSupported() {
+    SqlTableMetadata tm = getMetadata();
+    return tm.getInherit() == null
+        && tm.getLocalColumn(MG_TABLECLASS) == null
+        && !tm.getPrimaryKeys().isEmpty()
+        && tm.getStoredColumns().stream()
+            .noneMatch(
+                c ->
+                    REFBACK.equals(c.getColumnType())
+                        || c.getComputed() != null
+                        || c.getDefaultValue() != null);
+  }
+
+  private static int copyInTransaction(SqlTable table, Iterable<Row> rows) {
+    SqlRowEncoder encoder =
+        new SqlRowEncoder(
+            table.getColumnsToBeUpdated(Collections.emptySet()),
+            table.getMetadata().getMutationColumns());
+    List<String> columnNames =
+        encoder.getColumns().stream().map(Column::getName).collect(Collectors.toList());
+    columnNames.addAll(List.of(MG_INSERTEDBY, MG_INSERTEDON, MG_UPDATEDBY, MG_UPDATEDON));
+
+    String user = table.getSchema().getDatabase().getActiveUser();
+    if (user == null) {
+      user = ADMIN;
+    }
+    LocalDateTime now = LocalDateTime.now();
+    AtomicInteger count = new AtomicInteger(0);
+    String activeUser = user;
+    table
+        .getJooq()
         .connection(
             connection -> {
-              try {
-                CopyManager cm = new CopyManager(connection.unwrap(BaseConnection.class));
-
-                // must be batched
-                StringBuilder tmp = new StringBuilder();
-                tmp.append(
-                    this.getMetadata().getLocalColumnNames().stream()
-                            .map(c -> "\"" + c + "\"")
-                            .collect(Collectors.joining(","))
-                        + "\n");
+              try (SqlBinaryCopyWriter writer =
+                  new SqlBinaryCopyWriter(
+                      connection, table.getSchema().getName(), table.getName(), columnNames)) {
+                int size = encoder.size();
+                Object[] values = new Object[size + 4];
+                values[size] = activeUser;
+                values[size + 1] = now;
+                values[size + 2] = activeUser;
+                values[size + 3] = now;
+                List<Object> tuple = Arrays.asList(values);
                 for (Row row : rows) {
-                  StringBuilder line = new StringBuilder();
-                  for (Column c : this.getMetadata().getStoredColumns()) {
-                    if (!row.containsName(c.getName())) {
-                      line.append(",");
-                    } else {
-                      Object value = getTypedValue(row, c);
-                      line.append(value + ",");
-                    }
+                  if (!row.isDraft()) {
+                    encoder.checkRequired(row);
                   }
-                  tmp.append(line.substring(0, line.length() - 1) + "\n");
+                  encoder.encode(row, values);
+                  writer.write(tuple);
                 }
-
-                String tableName =
-                    "\"" + getSchema().getMetadata().getName() + "\".\"" + getName() + "\"";
-
-                String columnNames =
-                    "("
-                        + this.getMetadata().getLocalColumnNames().stream()
-                            .map(c -> "\"" + c + "\"")
-                            .collect(Collectors.joining(","))
-                        + ")";
-                String sql = "COPY " + tableName + columnNames + " FROM STDIN (FORMAT CSV,HEADER )";
-                cm.copyIn(sql, new StringReader(tmp.toString()));
-              } catch (Exception e) {
-                throw new MolgenisException("copyOut failed: ", e);
+                count.set((int) writer.finish());
+              } catch (IOException e) {
+                if (e.getCause() instanceof SQLException) {
+                  throw new SqlMolgenisException(
+                      new DataAccessException(e.getCause().getMessage(), e.getCause()));
+                }
+                throw new MolgenisException("binary copy failed", e);
+              } catch (SQLException e) {
+                throw new SqlMolgenisException(new DataAccessException(e.getMessage(), e));
               }
             });
+    return count.get();
   }
 
   @Override
@@ -118,6 +173,11 @@ class SqlTable implements Table {
 
   @Override
   public int insert(Iterable<Row> rows) {
+    // small batches are cheaper as multi-row insert
+    if (isCopyInSupported()
+        && !(rows instanceof Collection && ((Collection<Row>) rows).size() < COPY_IN_THRESHOLD)) {
+      return copyIn(rows);
+    }
     try {
       return executeTransaction(rows, INSERT);
     } catch (Exception e) {
@@ -153,6 +213,212 @@ class SqlTable implements Table {
     }
   }
 
+  @Override
+  public int save(Iterable<Row> rows, SaveMode mode) {
+    if (!SaveMode.STAGING.equals(mode)) {
+      return save(rows);
+    }
+    long start = System.currentTimeMillis();
+    if (getMetadata().getPrimaryKeys().isEmpty()) {
+      throw new MolgenisException(
+          "Upsert into table '" + getName() + "' failed: no primary key is defined");
+    }
+    AtomicInteger count = new AtomicInteger(0);
+    try {
+      db.tx(
+          db2 -> {
+            SqlTable table = (SqlTable) db2.getSchema(getSchema().getName()).getTable(getName());
+            count.set(saveUsingStagingTransaction(table, rows));
+          });
+    } catch (Exception e) {
+      throw new SqlMolgenisException("Upsert into table '" + getName() + "' failed.", e);
+    }
+    log(start, count, "upserted via staging");
+    return count.get();
+  }
+
+  /**
+   * COPY rows into one temporary table holding the columns of all inheritance levels, then upsert
+   * each level from there, starting with the root. On conflict only updated columns and
+   * mg_updatedBy/On are set, so mg_insertedBy/On of existing rows are kept. Like the batches of
+   * executeTransaction, each run of rows providing the same columns is staged separately, so
+   * columns a row doesn't provide are never overwritten.
+   */
+  private static int saveUsingStagingTransaction(SqlTable table, Iterable<Row> rows) {
+    Iterator<Row> iterator = rows.iterator();
+    AtomicInteger count = new AtomicInteger(0);
+    Row first = iterator.hasNext() ? iterator.next() : null;
+    while (first != null) {
+      first = saveUsingStaging(table, first, iterator, count);
+    }
+    return count.get();
+  }
+
+  /** stages and upserts rows until one provides other columns, and returns that row, if any */
+  private static Row saveUsingStaging(
+      SqlTable table, Row first, Iterator<Row> iterator, AtomicInteger count) {
+    Set<String> columnsProvided = new LinkedHashSet<>(first.getColumnNames());
+    columnsProvided.add(MG_TABLECLASS);
+    String tableClass = table.getMgTableClass(table.getMetadata());
+
+    // inheritance levels, root first
+    List<SqlTable> levels = new ArrayList<>();
+    for (SqlTable level = table;
+        level != null;
+        level = level.getMetadata().getInherit() != null ? level.getInheritedTable() : null) {
+      levels.add(0, level);
+    }
+    SqlTable root = levels.get(0);
+
+    // staging columns; each column is selected from the level that stores it
+    Map<String, Column> stagingColumns = new LinkedHashMap<>();
+    List<SelectField> stagingFields = new ArrayList<>();
+    List<org.jooq.Table> levelTables = new ArrayList<>();
+    Map<SqlTable, List<Column>> levelColumns = new LinkedHashMap<>();
+    for (SqlTable level : levels) {
+      List<Column> columns = new ArrayList<>(level.getColumnsToBeUpdated(columnsProvided));
+      levelColumns.put(level, columns);
+      levelTables.add(level.getJooqTable());
+      for (Column c : columns) {
+        if (!stagingColumns.containsKey(c.getName())) {
+          stagingColumns.put(c.getName(), c);
+          stagingFields.add(
+              field(
+                  name(level.getMetadata().getSchemaName(), level.getName(), c.getName()),
+                  c.getJooqType()));
+        }
+      }
+    }
+    SqlRowEncoder encoder =
+        new SqlRowEncoder(stagingColumns.values(), table.getMetadata().getMutationColumns());
+    List<String> stagingNames = new ArrayList<>(stagingColumns.keySet());
+    for (String mgColumn : List.of(MG_INSERTEDBY, MG_INSERTEDON, MG_UPDATEDBY, MG_UPDATEDON)) {
+      stagingNames.add(mgColumn);
+      stagingFields.add(field(name(root.getMetadata().getSchemaName(), root.getName(), mgColumn)));
+    }
+    // position in the input, so the last row wins when a key is provided more than once
+    stagingNames.add(STAGING_ROW);
+    stagingFields.add(inline(0).as(STAGING_ROW));
+    String staging = "mg_staging_" + System.nanoTime();
+    table
+        .getJooq()
+        .execute(
+            "CREATE TEMP TABLE {0} ON COMMIT DROP AS {1} WITH NO DATA",
+            name(staging),
+            select(stagingFields).from(levelTables));
+
+    // copy the rows
+    String user = table.getSchema().getDatabase().getActiveUser();
+    if (user == null) {
+      user = ADMIN;
+    }
+    LocalDateTime now = LocalDateTime.now();
+    String activeUser = user;
+    AtomicReference<Row> next = new AtomicReference<>();
+    table
+        .getJooq()
+        .connection(
+            connection -> {
+              try (SqlBinaryCopyWriter writer =
+                  new SqlBinaryCopyWriter(connection, "pg_temp", staging, stagingNames)) {
+                int size = encoder.size();
+                Object[] values = new Object[size + 5];
+                values[size] = activeUser;
+                values[size + 1] = now;
+                values[size + 2] = activeUser;
+                values[size + 3] = now;
+                List<Object> tuple = Arrays.asList(values);
+                int rowNumber = 0;
+                Row row = first;
+                while (row != null) {
+                  if (!hasColumns(row, columnsProvided)) {
+                    next.set(row);
+                    break;
+                  }
+                  if (row.notNull(MG_TABLECLASS)
+                      && !tableClass.equals(row.getString(MG_TABLECLASS))
+                      && !table.getName().equals(row.getString(MG_TABLECLASS))) {
+                    throw new MolgenisException(
+                        "staging only supports rows of table '"
+                            + table.getName()
+                            + "', found "
+                            + MG_TABLECLASS
+                            + "="
+                            + row.getString(MG_TABLECLASS));
+                  }
+                  row.set(MG_TABLECLASS, tableClass);
+                  if (!row.isDraft()) {
+                    encoder.checkRequired(row);
+                  }
+                  encoder.encode(row, values);
+                  values[size + 4] = rowNumber++;
+                  writer.write(tuple);
+                  row = iterator.hasNext() ? iterator.next() : null;
+                }
+                writer.finish();
+              } catch (IOException e) {
+                if (e.getCause() instanceof SQLException) {
+                  throw new SqlMolgenisException(
+                      new DataAccessException(e.getCause().getMessage(), e.getCause()));
+                }
+                throw new MolgenisException("binary copy failed", e);
+              } catch (SQLException e) {
+                throw new SqlMolgenisException(new DataAccessException(e.getMessage(), e));
+              }
+            });
+
+    // upsert each level, root first
+    int updated = 0;
+    for (SqlTable level : levels) {
+      List<Field> fields = new ArrayList<>();
+      for (Column c : levelColumns.get(level)) {
+        fields.add(field(name(c.getName())));
+      }
+      boolean isRoot = level == root;
+      if (isRoot) {
+        for (String mgColumn : List.of(MG_INSERTEDBY, MG_INSERTEDON, MG_UPDATEDBY, MG_UPDATEDON)) {
+          fields.add(field(name(mgColumn)));
+        }
+      }
+      // a statement cannot update the same row twice, so only keep the last row of each key
+      List<Field> keyFields = level.getMetadata().getPrimaryKeyFields();
+      List<OrderField> orderBy = new ArrayList<>(keyFields);
+      orderBy.add(field(name(STAGING_ROW)).desc());
+      InsertOnDuplicateStep<org.jooq.Record> insert =
+          table
+              .getJooq()
+              .insertInto(level.getJooqTable(), fields.toArray(new Field[0]))
+              .select(
+                  selectDistinct(fields)
+                      .on(keyFields)
+                      .from(table(name(staging)))
+                      .orderBy(orderBy));
+      InsertOnDuplicateSetStep<org.jooq.Record> step =
+          insert.onConflict(keyFields.toArray(new Field[0])).doUpdate();
+      List<String> updateColumns = new ArrayList<>();
+      levelColumns.get(level).forEach(c -> updateColumns.add(c.getName()));
+      if (isRoot) {
+        updateColumns.addAll(List.of(MG_UPDATEDBY, MG_UPDATEDON));
+      }
+      for (String updateColumn : updateColumns) {
+        step.set(
+            field(name(updateColumn)),
+            (Object) field(unquotedName("excluded.\"" + updateColumn + "\"")));
+      }
+      updated = insert.execute();
+    }
+    table.getJooq().dropTable(name(staging)).execute();
+    count.addAndGet(updated);
+    return next.get();
+  }
+
+  /** true if the row provides exactly these columns, apart from mg_tableclass */
+  private static boolean hasColumns(Row row, Set<String> columnsProvided) {
+    Set<String> names = row.getColumnNames();
+    int size = names.contains(MG_TABLECLASS) ? names.size() : names.size() + 1;
+    return size == columnsProvided.size() && columnsProvided.containsAll(names);
+  }
+
   @Override
   public void truncate() {
     db.tx(
@@ -195,6 +461,7 @@ class SqlTable implements Table {
     final AtomicInteger count = new AtomicInteger(0);
     final Map<String, List<Row>> subclassRows = new LinkedHashMap<>();
     final Map<String, Set<String>> columnsProvided = new LinkedHashMap<>();
+    final Map<String, SqlRowEncoder> encoders = new HashMap<>();
 
     String tableClass = getMgTableClass(getMetadata());
 
@@ -267,7 +534,8 @@ class SqlTable implements Table {
                   count,
                   subclassRows,
                   subclassName,
-                  columnsProvided.get(subclassName));
+                  columnsProvided.get(subclassName),
+                  encoders);
               // reset columns provided
               columnsProvided.get(subclassName).clear();
               columnsProvided.get(subclassName).addAll(row.getColumnNames());
@@ -286,7 +554,8 @@ class SqlTable implements Table {
                   count,
                   subclassRows,
                   batch.getKey(),
-                  columnsProvided.get(batch.getKey()));
+                  columnsProvided.get(batch.getKey()),
+                  encoders);
             }
           }
         });
@@ -295,14 +564,6 @@ class SqlTable implements Table {
     return count.get();
   }
 
-  private static void checkRequired(Row row, Collection<Column> columns) {
-    for (Column c : columns) {
-      if (c.isRequired() && row.isNull(c.getName(), c.getColumnType())) {
-        throw new MolgenisException("column '" + c.getName() + "' is required in " + row);
-      }
-    }
-  }
-
   private boolean columnsProvidedAreDifferent(Set<String> columnsProvided, Row row) {
     if (columnsProvided.size() == 0 || columnsProvided.equals(row.getColumnNames())) {
       return false;
@@ -317,21 +578,25 @@ class SqlTable implements Table {
       AtomicInteger count,
       Map<String, List<Row>> subclassRows,
       String subclassName,
-      Set<String> columnsProvided) {
+      Set<String> columnsProvided,
+      Map<String, SqlRowEncoder> encoders) {
 
     // execute
     SqlTable table = schema.getTable(subclassName.split("\\.")[1]);
     if (UPDATE.equals(transactionType)) {
       count.set(
-          count.get() + table.updateBatch(table, subclassRows.get(subclassName), columnsProvided));
+          count.get() + table.updateBatch(
+                  table, subclassRows.get(subclassName), columnsProvided, encoders));
     } else if (SAVE.equals(transactionType)) {
       count.set(
           count.get()
-              + table.insertBatch(table, subclassRows.get(subclassName), true, columnsProvided));
+              + table.insertBatch(
+                  table, subclassRows.get(subclassName), true, columnsProvided, encoders));
     } else if (INSERT.equals(transactionType)) {
       count.set(
           count.get()
-              + table.insertBatch(table, subclassRows.get(subclassName), false, columnsProvided));
+              + table.insertBatch(
+                  table, subclassRows.get(subclassName), false, columnsProvided, encoders));
     } else {
       throw new MolgenisException(
           "Internal error in executeBatch: transaction type "
@@ -343,18 +608,20 @@ class SqlTable implements Table {
   }
 
   private static int insertBatch(
-      SqlTable table, List<Row> rows, boolean updateOnConflict, Set<String> updateColumns) {
+      SqlTable table,
+      List<Row> rows,
+      boolean updateOnConflict,
+      Set<String> updateColumns,
+      Map<String, SqlRowEncoder> encoders) {
     boolean inherit = table.getMetadata().getInherit() != null;
     if (inherit) {
       SqlTable inheritedTable = table.getInheritedTable();
-      inheritedTable.insertBatch(inheritedTable, rows, updateOnConflict, updateColumns);
+      inheritedTable.insertBatch(inheritedTable, rows, updateOnConflict, updateColumns, encoders);
     }
 
-    // get metadata
-    Set<Column> columns = table.getColumnsToBeUpdated(updateColumns);
-    List<Column> allColumns = table.getMetadata().getMutationColumns();
-    List<Field> insertFields =
-        columns.stream().map(c -> c.getJooqField()).collect(Collectors.toList());
+    // get metadata; when insert, we should check all columns, not only 'updateColumns'
+    SqlRowEncoder encoder = table.getEncoder(encoders, updateColumns, true);
+    List<Field> insertFields = new ArrayList<>(encoder.getFields());
     if (!inherit) {
       insertFields.add(field(name(MG_INSERTEDBY)));
       insertFields.add(field(name(MG_INSERTEDON)));
@@ -372,28 +639,28 @@ class SqlTable implements Table {
       user = ADMIN;
     }
     LocalDateTime now = LocalDateTime.now();
+    int size = encoder.size();
+    Object[] values = new Object[insertFields.size()];
+    if (!inherit) {
+      values[size] = user;
+      values[size + 1] = now;
+      values[size + 2] = user;
+      values[size + 3] = now;
+    }
     for (Row row : rows) {
-      // when insert, we should include all columns, not only 'updateColumns'
       if (!row.isDraft()) {
-        checkRequired(row, allColumns);
-      }
-      // get values
-      Map values = SqlTypeUtils.getValuesAsMap(row, columns);
-      if (!inherit) {
-        values.put(MG_INSERTEDBY, user);
-        values.put(MG_INSERTEDON, now);
-        values.put(MG_UPDATEDBY, user);
-        values.put(MG_UPDATEDON, now);
+        encoder.checkRequired(row);
       }
-      step.values(values.values());
     }
+    // values are copied into the step, so the array can be reused
+    encoder.encode(rows, values, (row, encoded) -> step.values(encoded));
 
     // optionally, add conflict clause
     if (updateOnConflict) {
       InsertOnDuplicateSetStep<org.jooq.Record> step2 =
           step.onConflict(table.getMetadata().getPrimaryKeyFields().toArray(new Field[0]))
               .doUpdate();
-      for (Column column : columns) {
+      for (Column column : encoder.getColumns()) {
         step2.set(
             column.getJooqField(),
             (Object) field(unquotedName("excluded.\"" + column.getName() + "\"")));
@@ -421,52 +688,127 @@ class SqlTable implements Table {
         .collect(Collectors.toSet());
   }
 
-  private static int updateBatch(SqlTable table, List<Row> rows, Set<String> updateColumns) {
+  /** encoders are resolved once per transaction for each table, mutation and columns provided */
+  private SqlRowEncoder getEncoder(
+      Map<String, SqlRowEncoder> encoders, Set<String> updateColumns, boolean insert) {
+    String key =
+        getMgTableClass(getMetadata()) + (insert ? ":insert:" : ":update:") + updateColumns;
+    return encoders.computeIfAbsent(
+        key,
+        k -> {
+          Set<Column> columns = getColumnsToBeUpdated(updateColumns);
+          return new SqlRowEncoder(columns, insert ? getMetadata().getMutationColumns() : columns);
+        });
+  }
+
+  /**
+   * updates all rows using one 'UPDATE ... FROM (VALUES ...) v WHERE key = v.key' statement per
+   * chunk, instead of one statement per row. Chunks are sized to stay within the bind parameter
+   * limit of the postgresql protocol.
+   */
+  private static int updateBatch(
+      SqlTable table,
+      List<Row> rows,
+      Set<String> updateColumns,
+      Map<String, SqlRowEncoder> encoders) {
     boolean inherit = table.getMetadata().getInherit() != null;
     if (inherit) {
       SqlTable inheritedTable = table.getInheritedTable();
-      inheritedTable.updateBatch(inheritedTable, rows, updateColumns);
+      inheritedTable.updateBatch(inheritedTable, rows, updateColumns, encoders);
     }
 
     // get metadata
-    Set<Column> columns = table.getColumnsToBeUpdated(updateColumns);
-    List<Column> pkeyFields = table.getMetadata().getPrimaryKeyColumns();
-
-    // create batch of updates
-    List<UpdateConditionStep> list = new ArrayList();
+    SqlRowEncoder encoder = table.getEncoder(encoders, updateColumns, false);
+    List<Column> columns = encoder.getColumns();
+    List<Column> keyColumns =
+        table.getMetadata().getExpandedColumns(table.getMetadata().getPrimaryKeyColumns());
     String user = table.getSchema().getDatabase().getActiveUser();
     if (user == null) {
       user = ADMIN;
     }
     LocalDateTime now = LocalDateTime.now();
-    for (Row row : rows) {
-      Map values = SqlTypeUtils.getValuesAsMap(row, columns);
-      if (!inherit) {
-        values.put(MG_UPDATEDBY, user);
-        values.put(MG_UPDATEDON, now);
-      }
 
+    // one tuple per row; if a key occurs more than once the last row wins, like sequential updates
+    Map<List<String>, List<Field>> tuples = new LinkedHashMap<>();
+    Object[] values = new Object[encoder.size()];
+    for (Row row : rows) {
       if (!row.isDraft()) {
-        checkRequired(row, columns);
+        encoder.checkRequired(row);
       }
+    }
+    encoder.encode(
+        rows,
+        values,
+        (row, encoded) -> {
+          List<Field> tuple = new ArrayList<>();
+          List<String> key = new ArrayList<>();
+          for (Column keyColumn : keyColumns) {
+            Object value = row.get(keyColumn);
+            key.add(TypeUtils.toString(value));
+            tuple.add(cast(value, keyColumn.getJooqType()));
+          }
+          for (int i = 0; i < encoded.length; i++) {
+            tuple.add(cast(encoded[i], columns.get(i).getJooqType()));
+          }
+          tuples.remove(key);
+          tuples.put(key, tuple);
+        });
+    if (columns.isEmpty() && inherit) {
+      // nothing stored in this table itself
+      return tuples.size();
+    }
 
-      list.add(
-          table
-              .getJooq()
-              .update(table.getJooqTable())
-              .set(values)
-              .where(table.getUpdateCondition(row, pkeyFields)));
+    // v(k_0..k_n, c_0..c_n), aliased because key columns can also be updated columns
+    List<String> aliases = new ArrayList<>();
+    for (int i = 0; i < keyColumns.size(); i++) {
+      aliases.add("k_" + i);
+    }
+    for (int i = 0; i < columns.size(); i++) {
+      aliases.add("c_" + i);
+    }
+    Map<Field, Field> set = new LinkedHashMap<>();
+    for (int i = 0; i < columns.size(); i++) {
+      set.put(field(name(columns.get(i).getName())), field(name("v", "c_" + i)));
+    }
+    if (!inherit) {
+      set.put(field(name(MG_UPDATEDBY)), val(user));
+      set.put(field(name(MG_UPDATEDON)), val(now));
+    }
+    List<Condition> join = new ArrayList<>();
+    for (int i = 0; i < keyColumns.size(); i++) {
+      join.add(
+          field(
+                  name(
+                      table.getMetadata().getSchemaName(),
+                      table.getName(),
+                      keyColumns.get(i).getName()))
+              .eq(field(name("v", "k_" + i))));
     }
 
-    return Arrays.stream(table.getJooq().batch(list).execute()).reduce(Integer::sum).getAsInt();
+    int count = 0;
+    int chunkSize = Math.max(1, MAX_BIND_PARAMETERS / aliases.size());
+    List<RowN> chunk = new ArrayList<>();
+    for (List<Field> tuple : tuples.values()) {
+      chunk.add(row(tuple));
+      if (chunk.size() >= chunkSize) {
+        count += table.updateFromValues(chunk, set, aliases, join);
+        chunk.clear();
+      }
+    }
+    if (!chunk.isEmpty()) {
+      count += table.updateFromValues(chunk, set, aliases, join);
+    }
+    return count;
   }
 
-  private Condition getUpdateCondition(Row row, List<Column> pkeyFields) {
-    List<Condition> result = new ArrayList<>();
-    for (Column key : pkeyFields) {
-      result.add(key.getJooqField().eq(row.get(key)));
-    }
-    return and(result);
+  private int updateFromValues(
+      List<RowN> tuples, Map<Field, Field> set, List<String> aliases, List<Condition> join) {
+    return getJooq()
+        .update(getJooqTable())
+        .set(set)
+        .from(values(tuples.toArray(new RowN[0])).as("v", aliases.toArray(new String[0])))
+        .where(and(join))
+        .execute();
   }
 
   @Override
@@ -555,6 +897,14 @@ class SqlTable implements Table {
   }
 
   private Condition getWhereConditionForBatchDelete(Collection<Row> rows) {
+    List<Column> keyColumns = getMetadata().getPrimaryKeyColumns();
+    if (!keyColumns.isEmpty()
+        && keyColumns.stream().noneMatch(c -> REFBACK.equals(c.getColumnType()))) {
+      keyColumns = getMetadata().getExpandedColumns(keyColumns);
+      if (keyColumns.stream().noneMatch(c -> c.getColumnType().isArray())) {
+        return getWhereConditionForBatchDeleteUsingArrays(rows, keyColumns);
+      }
+    }
     List<Condition> conditions = new ArrayList<>();
     for (Row r : rows) {
       List<Condition> rowCondition = new ArrayList<>();
@@ -573,6 +923,36 @@ class SqlTable implements Table {
     return or(conditions);
   }
 
+  /**
+   * binds the key values as one typed array per key column, i.e. 'WHERE (k1,k2) IN (SELECT * FROM
+   * unnest(?::type[],?::type[]))', so the statement size doesn't grow with the number of rows
+   */
+  private static Condition getWhereConditionForBatchDeleteUsingArrays(
+      Collection<Row> rows, List<Column> keyColumns) {
+    List<Field> keyFields = new ArrayList<>();
+    List<Field> arrays = new ArrayList<>();
+    for (Column key : keyColumns) {
+      Object[] values = (Object[]) Array.newInstance(key.getColumnType().getType(), rows.size());
+      int i = 0;
+      for (Row r : rows) {
+        values[i++] = r.get(key.getName(), key.getColumnType());
+      }
+      keyFields.add(key.getJooqField());
+      arrays.add(cast(values, key.getJooqType().getArrayDataType()));
+    }
+    List<String> args = new ArrayList<>();
+    for (int i = 0; i < arrays.size(); i++) {
+      args.add("{" + i + "}");
+    }
+    return row(keyFields)
+        .in(
+            select(asterisk())
+                .from(
+                    table(
+                        "unnest(" + String.join(",", args) + ")",
+                        arrays.toArray(new QueryPart[0]))));
+  }
+
   private Condition getColumnCondition(Row r, Column key) {
     List<Condition> columnCondition = new ArrayList<>();
     if (REF.equals(key.getColumnType()) || REF_ARRAY.equals(key.getColumnType())
@@ -611,6 +991,11 @@ class SqlTable implements Table {
     return this.query().retrieveRows();
   }
 
+  @Override
+  public Stream<Row> retrieveRowStream() {
+    return this.query().retrieveRowStream();
+  }
+
   @Override
   public String getName() {
     return getMetadata().getTableName();
@@ -23,6 +23,11 @@ class SqlTableMetadata extends TableMetadata {
     super(schema, metadata);
   }
 
+  /** copy that shares the columns of metadata, see SqlSchemaMetadata.share */
+  SqlTableMetadata(SqlSchemaMetadata schema, SqlTableMetadata metadata, boolean shareColumns) {
+    super(schema, metadata, shareColumns);
+  }
+
   @Override
   public TableMetadata add(Column... column) {
     getDatabase()
@@ -62,7 +67,8 @@ class SqlTableMetadata extends TableMetadata {
           validateColumn(newColumn);
           updatePositions(newColumn, tm);
           executeCreateColumn(tm.getJooq(), newColumn);
-          tm.columns.put(c.getName(), newColumn);
+          tm.getColumnsToChange().put(c.getName(), newColumn);
+          tm.invalidateColumns();
           if (newColumn.getKey() > 0) {
             createOrReplaceKey(
                 tm.getJooq(),
@@ -72,7 +78,8 @@ class SqlTableMetadata extends TableMetadata {
           }
           executeCreateRefConstraints(tm.getJooq(), newColumn);
         } else {
-          tm.columns.put(c.getName(), newColumn);
+          tm.getColumnsToChange().put(c.getName(), newColumn);
+          tm.invalidateColumns();
         }
         log(tm, start, "added column '" + newColumn.getName() + "' to table " + tm.getTableName());
       }
@@ -230,9 +237,10 @@ class SqlTableMetadata extends TableMetadata {
       column.setPosition(tm.columns.get(columnName).getPosition());
     }
     // remove the old
-    tm.columns.remove(columnName);
+    tm.getColumnsToChange().remove(columnName);
     // add the new
-    tm.columns.put(column.getName(), column);
+    tm.getColumnsToChange().put(column.getName(), column);
+    tm.invalidateColumns();
 
     // reapply ref constrainst
     executeCreateRefConstraints(tm.getJooq(), newColumn);
@@ -295,7 +303,8 @@ class SqlTableMetadata extends TableMetadata {
         (SqlTableMetadata) db.getSchema(schemaName).getTable(tableName).getMetadata();
     DSLContext jooq = ((SqlDatabase) db).getJooq();
     SqlColumnExecutor.executeRemoveColumn(jooq, tm.getColumn(columnName));
-    tm.columns.remove(columnName);
+    tm.getColumnsToChange().remove(columnName);
+    tm.invalidateColumns();
     return tm;
   }
 
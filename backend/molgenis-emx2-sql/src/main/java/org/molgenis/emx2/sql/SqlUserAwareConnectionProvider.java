@@ -4,13 +4,30 @@ import static org.jooq.impl.DSL.name;
 import static org.molgenis.emx2.Constants.MG_USER_PREFIX;
 
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
 import javax.sql.DataSource;
 import org.jooq.SQLDialect;
 import org.jooq.exception.DataAccessException;
 import org.jooq.impl.DSL;
 import org.jooq.impl.DataSourceConnectionProvider;
+import org.postgresql.core.BaseConnection;
 
+/**
+ * Provides connections with session authorization set to the active user. Pooled connections keep
+ * their authorization after release, and the authorization of each physical connection is
+ * remembered, so 'SET SESSION AUTHORIZATION' or 'RESET SESSION AUTHORIZATION' only runs when a
+ * connection was last used for another user. Anonymous traffic on connections that were already
+ * reset doesn't pay any extra round trips.
+ */
 public class SqlUserAwareConnectionProvider extends DataSourceConnectionProvider {
+  // shared because all providers use the same pool; value is the user, or ANONYMOUS
+  private static final Map<Object, String> authorizations =
+      Collections.synchronizedMap(new WeakHashMap<>());
+  private static final String ANONYMOUS = "";
   private String activeUser;
 
   public SqlUserAwareConnectionProvider(DataSource source) {
@@ -22,9 +39,18 @@ public class SqlUserAwareConnectionProvider extends DataSourceConnectionProvider
     Connection connection = null;
     try {
       connection = super.acquire();
-      if (activeUser != null) {
-        DSL.using(connection, SQLDialect.POSTGRES)
-            .execute("SET SESSION AUTHORIZATION {0}", name(MG_USER_PREFIX + activeUser));
+      Object key = getPhysicalConnection(connection);
+      String required = activeUser != null ? activeUser : ANONYMOUS;
+      if (!Objects.equals(required, authorizations.get(key))) {
+        // forget first, so a failure leaves the state unknown
+        authorizations.remove(key);
+        if (activeUser != null) {
+          DSL.using(connection, SQLDialect.POSTGRES)
+              .execute("SET SESSION AUTHORIZATION {0}", name(MG_USER_PREFIX + activeUser));
+        } else {
+          DSL.using(connection, SQLDialect.POSTGRES).execute("RESET SESSION AUTHORIZATION");
+        }
+        authorizations.put(key, required);
       }
       return connection;
     } catch (DataAccessException dae) {
@@ -33,14 +59,21 @@ public class SqlUserAwareConnectionProvider extends DataSourceConnectionProvider
     }
   }
 
-  @Override
-  public void release(Connection connection) {
+  /**
+   * to be called when session authorization was changed on the connection directly, e.g. within a
+   * transaction, so it is reapplied on the next acquire
+   */
+  static void forgetAuthorization(Connection connection) {
+    authorizations.remove(getPhysicalConnection(connection));
+  }
+
+  // pools hand out a new proxy on every checkout, so use the underlying connection as key
+  private static Object getPhysicalConnection(Connection connection) {
     try {
-      DSL.using(connection, SQLDialect.POSTGRES).execute("RESET SESSION AUTHORIZATION");
-    } catch (DataAccessException dae) {
-      throw new SqlMolgenisException("release of connection failed ", dae);
+      return connection.unwrap(BaseConnection.class);
+    } catch (SQLException e) {
+      return connection;
     }
-    super.release(connection);
   }
 
   public String getActiveUser() {
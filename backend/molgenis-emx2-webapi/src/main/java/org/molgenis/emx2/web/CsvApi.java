@@ -5,10 +5,17 @@ import static org.molgenis.emx2.web.MolgenisWebservice.getSchema;
 import static spark.Spark.*;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.List;
+import java.util.stream.Stream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestWrapper;
 import org.molgenis.emx2.*;
+import org.molgenis.emx2.io.ImportCsvTableTask;
 import org.molgenis.emx2.io.emx2.Emx2;
 import org.molgenis.emx2.io.readers.CsvTableReader;
 import org.molgenis.emx2.io.readers.CsvTableWriter;
@@ -71,20 +78,50 @@ public class CsvApi {
 
   private static String tableRetrieve(Request request, Response response) throws IOException {
     Table table = MolgenisWebservice.getTable(request);
-    List<Row> rows = table.retrieveRows();
-    StringWriter writer = new StringWriter();
-    CsvTableWriter.write(rows, writer, getSeperator(request));
     response.type(ACCEPT_CSV);
     response.header("Content-Disposition", "attachment; filename=\"" + table.getName() + ".csv\"");
     response.status(200);
-    return writer.toString();
+
+    // stream from database cursor straight into the response, so memory use stays flat
+    Writer writer =
+        new BufferedWriter(
+            new OutputStreamWriter(response.raw().getOutputStream(), StandardCharsets.UTF_8));
+    try (Stream<Row> rows = table.retrieveRowStream()) {
+      CsvTableWriter.write(rows.iterator(), writer, getSeperator(request));
+    }
+    return "";
   }
 
-  private static String tableUpdate(Request request, Response response) {
-    int count = MolgenisWebservice.getTable(request).save(getRowList(request));
+  private static String tableUpdate(Request request, Response response) throws IOException {
+    Table table = MolgenisWebservice.getTable(request);
+    if (request.queryParams("async") != null) {
+      // request body is gone once we return, so first spool it to disk
+      Path tempFile = Files.createTempFile("upload_", ".csv");
+      try (InputStream body = getBodyStream(request)) {
+        Files.copy(body, tempFile, StandardCopyOption.REPLACE_EXISTING);
+      }
+      String id = TaskApi.submit(new ImportCsvTableTask(tempFile, table, true));
+      return new TaskReference(id, table.getSchema()).toString();
+    }
+    ImportCsvTableTask task =
+        new ImportCsvTableTask(
+            new InputStreamReader(getBodyStream(request), StandardCharsets.UTF_8), table);
+    task.run();
     response.status(200);
     response.type(ACCEPT_CSV);
-    return "" + count;
+    return "" + task.getTotal();
+  }
+
+  /**
+   * spark caches the complete body in memory when reading via its request wrapper, so we read
+   * from the underlying servlet request instead
+   */
+  private static InputStream getBodyStream(Request request) throws IOException {
+    ServletRequest raw = request.raw();
+    while (raw instanceof ServletRequestWrapper) {
+      raw = ((ServletRequestWrapper) raw).getRequest();
+    }
+    return raw.getInputStream();
   }
 
   private static Iterable<Row> getRowList(Request request) {
@@ -6,6 +6,7 @@ import static org.molgenis.emx2.web.MolgenisWebservice.*;
 import static spark.Spark.get;
 import static spark.Spark.post;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import graphql.ExecutionInput;
@@ -15,13 +16,17 @@ import graphql.GraphQLError;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import javax.servlet.MultipartConfigElement;
 import javax.servlet.http.Part;
+import org.molgenis.emx2.Database;
 import org.molgenis.emx2.MolgenisException;
-import org.molgenis.emx2.graphql.GraphqlApiFactory;
+import org.molgenis.emx2.graphql.GraphqlDocumentCache;
+import org.molgenis.emx2.graphql.GraphqlJsonPassthrough;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import spark.Request;
@@ -33,7 +38,20 @@ import spark.Response;
 public class GraphqlApi {
   public static final String QUERY = "query";
   public static final String VARIABLES = "variables";
+  public static final String EXTENSIONS = "extensions";
+  public static final String PERSISTED_QUERY_NOT_FOUND = "PersistedQueryNotFound";
+  private static final String SHA256_HASH = "/persistedQuery/sha256Hash";
+  private static final int PERSISTED_QUERIES_SIZE = 1000;
   private static Logger logger = LoggerFactory.getLogger(GraphqlApi.class);
+  // persisted queries, key is sha256 hash of the query
+  private static final Map<String, String> persistedQueries =
+      Collections.synchronizedMap(
+          new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+              return size() > PERSISTED_QUERIES_SIZE;
+            }
+          });
   private static MolgenisSessionManager sessionManager;
 
   private GraphqlApi() {
@@ -58,7 +76,7 @@ public class GraphqlApi {
       throws IOException {
     MolgenisSession session = sessionManager.getSession(request);
     response.header(CONTENT_TYPE, ACCEPT_JSON);
-    return executeQuery(session.getGraphqlForDatabase(), request);
+    return executeQuery(session.getGraphqlForDatabase(), session.getDatabase(), request);
   }
 
   public static String handleSchemaRequests(Request request, Response response) throws IOException {
@@ -76,10 +94,11 @@ public class GraphqlApi {
     }
     GraphQL graphqlForSchema = session.getGraphqlForSchema(schemaName);
     response.header(CONTENT_TYPE, ACCEPT_JSON);
-    return executeQuery(graphqlForSchema, request);
+    return executeQuery(graphqlForSchema, session.getDatabase(), request);
   }
 
-  private static String executeQuery(GraphQL g, Request request) throws IOException {
+  private static String executeQuery(GraphQL g, Database database, Request request)
+      throws IOException {
     String query = getQueryFromRequest(request);
     Map<String, Object> variables = getVariablesFromRequest(request);
 
@@ -95,14 +114,15 @@ public class GraphqlApi {
     }
 
     // tests show overhead of this step is about 20ms (jooq takes the rest)
-    ExecutionResult executionResult = null;
+    // graphql is shared between users, so fetchers get the database of the user via context
+    GraphqlJsonPassthrough context = new GraphqlJsonPassthrough(database);
+    ExecutionInput.Builder input = ExecutionInput.newExecutionInput(query).context(context);
     if (variables != null) {
-      executionResult = g.execute(ExecutionInput.newExecutionInput(query).variables(variables));
-    } else {
-      executionResult = g.execute(query);
+      input.variables(variables);
     }
+    ExecutionResult executionResult = g.execute(input);
 
-    String result = GraphqlApiFactory.convertExecutionResultToJson(executionResult);
+    String result = context.toJson(executionResult);
 
     for (GraphQLError err : executionResult.getErrors()) {
       if (logger.isErrorEnabled()) {
@@ -131,8 +151,12 @@ public class GraphqlApi {
         query = request.queryParams(QUERY);
       } else {
         ObjectNode node = new ObjectMapper().readValue(request.body(), ObjectNode.class);
-        query = node.get(QUERY).asText();
+        query = node.hasNonNull(QUERY) ? node.get(QUERY).asText() : null;
+        query = getPersistedQuery(node.at("/" + EXTENSIONS + SHA256_HASH), query);
       }
+    } else if (request.queryParams(EXTENSIONS) != null) {
+      JsonNode extensions = new ObjectMapper().readTree(request.queryParams(EXTENSIONS));
+      query = getPersistedQuery(extensions.at(SHA256_HASH), request.queryParams(QUERY));
     } else {
       query =
           request.queryParamOrDefault(
@@ -148,6 +172,29 @@ public class GraphqlApi {
     return query;
   }
 
+  /**
+   * Persisted queries: clients send the sha256 hash of the query as extension, with the query
+   * only when we don't know it yet, as signalled by PersistedQueryNotFound.
+   */
+  private static String getPersistedQuery(JsonNode hash, String query) {
+    if (hash.isMissingNode() || hash.isNull()) {
+      return query;
+    }
+    String id = hash.asText();
+    if (query == null) {
+      query = persistedQueries.get(id);
+      if (query == null) {
+        throw new MolgenisException(PERSISTED_QUERY_NOT_FOUND);
+      }
+    } else if (id.equals(GraphqlDocumentCache.sha256(query))) {
+      persistedQueries.put(id, query);
+    } else {
+      throw new MolgenisException(
+          "Persisted query failed", "sha256Hash '" + id + "' does not match the query");
+    }
+    return query;
+  }
+
   private static Map<String, Object> getVariablesFromRequest(Request request) {
     if ("POST".equals(request.requestMethod())) {
       try {
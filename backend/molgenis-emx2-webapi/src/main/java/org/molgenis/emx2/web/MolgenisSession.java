@@ -28,8 +28,8 @@ public class MolgenisSession {
 
   public GraphQL getGraphqlForDatabase() {
     if (graphqlForDatabase == null) {
-      graphqlForDatabase = new GraphqlApiFactory().createGraphqlForDatabase(database);
-      logger.info("created graphql for user {}", getSessionUser());
+      graphqlForDatabase = new GraphqlApiFactory().getGraphqlForDatabase(database);
+      logger.info("got graphql for user {}", getSessionUser());
     }
     return graphqlForDatabase;
   }
@@ -43,8 +43,8 @@ public class MolgenisSession {
             "Schema not found: Schema with name '"
                 + schemaName
                 + "' does not exist or permission denied");
-      graphqlPerSchema.put(schemaName, new GraphqlApiFactory().createGraphqlForSchema(schema));
-      logger.info("created graphql schema '{}' for user '{}'", schemaName, getSessionUser());
+      graphqlPerSchema.put(schemaName, new GraphqlApiFactory().getGraphqlForSchema(schema));
+      logger.info("got graphql schema '{}' for user '{}'", schemaName, getSessionUser());
     }
     logger.info("return graphql schema '{}' for user '{}'", schemaName, getSessionUser());
     return graphqlPerSchema.get(schemaName);
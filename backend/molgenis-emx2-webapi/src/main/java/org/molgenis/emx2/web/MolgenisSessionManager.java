@@ -2,13 +2,15 @@ package org.molgenis.emx2.web;
 
 import static org.joda.time.Minutes.minutesBetween;
 
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.joda.time.DateTime;
 import org.joda.time.Minutes;
 import org.molgenis.emx2.Database;
 import org.molgenis.emx2.MolgenisException;
+import org.molgenis.emx2.graphql.GraphqlApiFactory;
 import org.molgenis.emx2.sql.SqlDatabase;
+import org.molgenis.emx2.sql.SqlSchemaChangeNotifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import spark.Request;
@@ -20,9 +22,16 @@ public class MolgenisSessionManager {
   private static final Logger logger = LoggerFactory.getLogger(MolgenisSessionManager.class);
 
   // key is the user, might lead to trouble
-  private Map<String, MolgenisSession> sessions = new LinkedHashMap<>();
+  private Map<String, MolgenisSession> sessions = new ConcurrentHashMap<>();
 
-  public MolgenisSessionManager() {}
+  public MolgenisSessionManager() {
+    // schema changes on other nodes might affect all users, same as local changes
+    SqlSchemaChangeNotifier.addListener(
+        schemaName -> {
+          logger.info("clear caches because schema '{}' changed on other node", schemaName);
+          clearAllCaches();
+        });
+  }
 
   public MolgenisSession getSession(Request request) {
     // already in a session, then return that
@@ -101,6 +110,7 @@ public class MolgenisSessionManager {
   }
 
   void clearAllCaches() {
+    GraphqlApiFactory.clearCache();
     for (MolgenisSession session : sessions.values()) {
       session.clearCache();
     }
@@ -4,6 +4,8 @@ import static io.restassured.RestAssured.given;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.molgenis.emx2.Column.column;
+import static org.molgenis.emx2.TableMetadata.table;
 import static org.molgenis.emx2.web.Constants.*;
 import static org.molgenis.emx2.web.MolgenisSessionManager.MOLGENIS_TOKEN;
 
@@ -11,7 +13,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import graphql.Assert;
 import io.restassured.RestAssured;
 import java.io.*;
-import java.util.Map;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.FixMethodOrder;
@@ -20,8 +27,13 @@ import org.junit.runners.MethodSorters;
 import org.molgenis.emx2.Database;
 import org.molgenis.emx2.MolgenisException;
 import org.molgenis.emx2.Privileges;
+import org.molgenis.emx2.Row;
 import org.molgenis.emx2.Schema;
+import org.molgenis.emx2.Table;
 import org.molgenis.emx2.examples.PetStoreExample;
+import org.molgenis.emx2.graphql.GraphqlDocumentCache;
+import org.molgenis.emx2.io.readers.CsvTableReader;
+import org.molgenis.emx2.io.readers.CsvTableWriter;
 import org.molgenis.emx2.sql.TestDatabaseFactory;
 
 /* this is a smoke test for the integration of web api with the database layer */
@@ -160,6 +172,36 @@ public class TestWebApi {
     return tempFile;
   }
 
+  @Test
+  public void test4TableDownloadCSV() throws IOException {
+    // streamed download should be the same as writing all rows at once
+    StringWriter expected = new StringWriter();
+    CsvTableWriter.write(schema.getTable("Pet").retrieveRows(), expected, ',');
+    String result = given().accept(ACCEPT_CSV).when().get("/pet store/api/csv/Pet").asString();
+    assertEquals(getHeader(expected.toString()), getHeader(result));
+    assertEquals(getValueMaps(expected.toString()), getValueMaps(result));
+
+    String tsv =
+        given().accept(ACCEPT_CSV).when().get("/pet store/api/csv/Pet?separator=TAB").asString();
+    assertEquals(getHeader(expected.toString()), getHeader(tsv, "\t"));
+  }
+
+  private Set<String> getHeader(String csv) {
+    return getHeader(csv, ",");
+  }
+
+  private Set<String> getHeader(String csv, String separator) {
+    return new HashSet<>(Arrays.asList(csv.split("\r\n")[0].split(separator)));
+  }
+
+  private List<Map<String, Object>> getValueMaps(String csv) {
+    List<Map<String, Object>> result = new ArrayList<>();
+    for (Row row : CsvTableReader.read(new StringReader(csv))) {
+      result.add(row.getValueMap());
+    }
+    return result;
+  }
+
   @Test
   public void test5TableGetPostDeleteCSV() {
 
@@ -182,6 +224,52 @@ public class TestWebApi {
     assertEquals(exp1, result);
   }
 
+  @Test
+  public void test5TableUploadCSV() throws IOException, InterruptedException {
+    Schema uploadSchema = db.dropCreateSchema("csv upload");
+    Table upload = uploadSchema.create(table("Upload", column("name").setPkey(), column("size")));
+    String path = "/csv upload/api/csv/Upload";
+
+    // streamed upload
+    String result = given().body("name,size\r\na,1\r\nb,2\r\n").when().post(path).asString();
+    assertEquals("2", result);
+    assertEquals(2, upload.retrieveRows().size());
+
+    // async upload is spooled to a temp file that is deleted when done
+    Set<Path> tempFiles = getUploadTempFiles();
+    String message =
+        given().body("name,size\r\nb,3\r\nc,4\r\n").when().post(path + "?async=true").asString();
+    Map<String, String> val = new ObjectMapper().readValue(message, Map.class);
+    String poll = given().when().get(val.get("url")).asString();
+    int count = 0;
+    while (!poll.contains("COMPLETED") && !poll.contains("ERROR")) {
+      if (count++ > 100) {
+        throw new MolgenisException("failed: polling took too long");
+      }
+      Thread.sleep(500);
+      poll = given().when().get(val.get("url")).asString();
+    }
+    assertTrue(poll.contains("COMPLETED"));
+    assertEquals(tempFiles, getUploadTempFiles());
+    List<Row> rows = upload.retrieveRows();
+    assertEquals(3, rows.size());
+    for (Row row : rows) {
+      if ("b".equals(row.getString("name"))) {
+        assertEquals("3", row.getString("size"));
+      }
+    }
+
+    db.dropSchema("csv upload");
+  }
+
+  private Set<Path> getUploadTempFiles() throws IOException {
+    try (Stream<Path> files = Files.list(Paths.get(System.getProperty("java.io.tmpdir")))) {
+      return files
+          .filter(f -> f.getFileName().toString().startsWith("upload_"))
+          .collect(Collectors.toSet());
+    }
+  }
+
   @Test
   public void test6SmokeTestGraphql() {
     db.setUserPassword("admin", "admin");
@@ -214,6 +302,40 @@ public class TestWebApi {
     assertTrue(result.contains("Signed in"));
   }
 
+  @Test
+  public void test7PersistedQueries() {
+    String path = "/pet store/api/graphql";
+    String query = "{Pet{name}}";
+    String extensions =
+        "\"extensions\":{\"persistedQuery\":{\"version\":1,\"sha256Hash\":\""
+            + GraphqlDocumentCache.sha256(query)
+            + "\"}}";
+
+    // unknown hash
+    String result = given().body("{" + extensions + "}").when().post(path).asString();
+    assertTrue(result.contains(GraphqlApi.PERSISTED_QUERY_NOT_FOUND));
+
+    // register with query, then only hash is needed
+    result =
+        given()
+            .body("{\"query\":\"" + query + "\"," + extensions + "}")
+            .when()
+            .post(path)
+            .asString();
+    assertTrue(result.contains("spike"));
+    result = given().body("{" + extensions + "}").when().post(path).asString();
+    assertTrue(result.contains("spike"));
+
+    // hash must match
+    result =
+        given()
+            .body("{\"query\":\"{Order{orderId}}\"," + extensions + "}")
+            .when()
+            .post(path)
+            .asString();
+    assertTrue(result.contains("does not match"));
+  }
+
   @Test
   public void appProxySmokeTest() throws IOException {
     String result = given().when().get("/plugin/molgenis-app-reports/dist/index.html").asString();
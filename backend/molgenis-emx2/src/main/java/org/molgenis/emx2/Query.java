@@ -2,6 +2,7 @@ package org.molgenis.emx2;
 
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 public interface Query {
 
@@ -15,14 +16,28 @@ public interface Query {
 
   Query offset(int offset);
 
+  /** keyset pagination: only rows after the cursor returned in '_cursor' of a previous row */
+  Query after(String cursor);
+
+  /** keyset pagination: only rows before the cursor returned in '_cursor' of a previous row */
+  Query before(String cursor);
+
   Query orderBy(Map<String, Order> values);
 
   Query orderBy(String column);
 
   Query orderBy(String column, Order order);
 
+  Query fetchSize(int fetchSize);
+
   List<Row> retrieveRows();
 
+  /**
+   * Streams the rows using a server side cursor, fetching 'fetchSize' rows per round trip. The
+   * stream holds a database connection until closed, so use try-with-resources.
+   */
+  Stream<Row> retrieveRowStream();
+
   String retrieveJSON();
 
   Filter getFilter();
@@ -32,4 +47,6 @@ public interface Query {
   String[] getSearchTerms();
 
   Map<String, Order> getOrderBy();
+
+  int getFetchSize();
 }
@@ -8,9 +8,11 @@ import java.util.Map;
 import java.util.stream.Stream;
 
 public class QueryBean implements Query {
+  public static final int DEFAULT_FETCH_SIZE = 1000;
   private SelectColumn select;
   private Filter filter;
   private String[] searchTerms = new String[0];
+  private int fetchSize = DEFAULT_FETCH_SIZE;
 
   public QueryBean() {
     this.select = new SelectColumn(null);
@@ -39,6 +41,11 @@ public class QueryBean implements Query {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public Stream<Row> retrieveRowStream() {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public String retrieveJSON() {
     throw new UnsupportedOperationException();
@@ -67,6 +74,20 @@ public class QueryBean implements Query {
     return this;
   }
 
+  @Override
+  public Query fetchSize(int fetchSize) {
+    if (fetchSize < 1) {
+      throw new MolgenisException("Invalid fetchSize: should be larger than 0, found " + fetchSize);
+    }
+    this.fetchSize = fetchSize;
+    return this;
+  }
+
+  @Override
+  public int getFetchSize() {
+    return fetchSize;
+  }
+
   @Override
   public Filter getFilter() {
     return filter;
@@ -82,6 +103,18 @@ public class QueryBean implements Query {
     return searchTerms;
   }
 
+  @Override
+  public Query after(String cursor) {
+    this.select.setAfter(cursor);
+    return this;
+  }
+
+  @Override
+  public Query before(String cursor) {
+    this.select.setBefore(cursor);
+    return this;
+  }
+
   @Override
   public Query orderBy(Map<String, Order> values) {
     this.select.setOrderBy(values);
@@ -0,0 +1,13 @@
+package org.molgenis.emx2;
+
+/** how Table.save writes the rows */
+public enum SaveMode {
+  /** multi-row 'INSERT ... ON CONFLICT DO UPDATE' statements per batch of rows */
+  BATCH,
+  /**
+   * COPY all rows into a temporary staging table first, then upsert using one 'INSERT ... SELECT
+   * ... ON CONFLICT DO UPDATE' per inheritance level. Intended for very large saves. Rows must all
+   * belong to the table itself. Rows with the same key are saved once, the last one wins.
+   */
+  STAGING
+}
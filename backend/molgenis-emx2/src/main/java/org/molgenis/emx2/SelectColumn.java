@@ -9,6 +9,8 @@ public class SelectColumn {
   private Map<String, SelectColumn> children = new LinkedHashMap<>();
   private int limit = 0;
   private int offset = 0;
+  private String after = null;
+  private String before = null;
   private Map<String, Order> orderBy = new LinkedHashMap<>();
 
   public SelectColumn(String column) {
@@ -78,6 +80,22 @@ public class SelectColumn {
     return offset;
   }
 
+  public String getAfter() {
+    return after;
+  }
+
+  public void setAfter(String after) {
+    this.after = after;
+  }
+
+  public String getBefore() {
+    return before;
+  }
+
+  public void setBefore(String before) {
+    this.before = before;
+  }
+
   public void setOrderBy(Map<String, Order> values) {
     this.orderBy.putAll(values);
   }
@@ -1,6 +1,7 @@
 package org.molgenis.emx2;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface Table {
 
@@ -22,6 +23,8 @@ public interface Table {
 
   int save(Iterable<Row> rows);
 
+  int save(Iterable<Row> rows, SaveMode mode);
+
   int delete(Row... row);
 
   int delete(Iterable<Row> rows);
@@ -41,4 +44,6 @@ public interface Table {
   Query agg();
 
   List<Row> retrieveRows();
+
+  Stream<Row> retrieveRowStream();
 }
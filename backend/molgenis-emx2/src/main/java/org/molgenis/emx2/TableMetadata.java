@@ -22,6 +22,8 @@ public class TableMetadata {
   protected String description = null;
   // columns of the table (required)
   protected Map<String, Column> columns = new LinkedHashMap<>();
+  // if columns are shared with the table this was copied from, then copied on first change
+  private boolean sharedColumns = false;
   // key value map for settings specific to this table (optional)
   protected Map<String, Setting> settings = new LinkedHashMap<>();
   // link to the schema this table is part of (optional)
@@ -30,6 +32,10 @@ public class TableMetadata {
   protected String tableName;
   // old name, useful for alter table
   private String oldName;
+  // incremented on every change of the columns, to invalidate columnCache
+  private int columnsVersion = 0;
+  // immutable views on the columns, rebuilt on first use after a change
+  private volatile ColumnCache columnCache = null;
 
   public String[] getSemantics() {
     return semantics;
@@ -58,9 +64,17 @@ public class TableMetadata {
   }
 
   public TableMetadata(SchemaMetadata schema, TableMetadata metadata) {
+    this(schema, metadata, false);
+  }
+
+  /**
+   * copy constructor that optionally shares the columns of metadata instead of copying them, so
+   * these must not be changed anymore; this copy copies them on its first change of the columns
+   */
+  protected TableMetadata(SchemaMetadata schema, TableMetadata metadata, boolean shareColumns) {
     this.clearCache();
     this.schema = schema;
-    this.sync(metadata);
+    this.sync(metadata, shareColumns);
   }
 
   public static TableMetadata table(String tableName) {
@@ -76,6 +90,10 @@ public class TableMetadata {
   }
 
   public void sync(TableMetadata metadata) {
+    this.sync(metadata, false);
+  }
+
+  private void sync(TableMetadata metadata, boolean shareColumns) {
     // skip if same object!
     if (this != metadata) {
       clearCache();
@@ -85,12 +103,18 @@ public class TableMetadata {
       for (Setting setting : metadata.getSettings()) {
         this.settings.put(setting.getKey(), setting);
       }
-      for (Column c : metadata.columns.values()) {
-        this.columns.put(c.getName(), new Column(this, c));
+      if (shareColumns) {
+        this.columns = metadata.columns;
+        this.sharedColumns = true;
+      } else {
+        for (Column c : metadata.columns.values()) {
+          this.columns.put(c.getName(), new Column(this, c));
+        }
       }
       this.inherit = metadata.getInherit();
       this.importSchema = metadata.getImportSchema();
       this.semantics = metadata.getSemantics();
+      invalidateColumns();
     }
   }
 
@@ -106,31 +130,9 @@ public class TableMetadata {
     this.schema = schemaMetadata;
   }
 
+  /** @return immutable list of all columns, including inherited; the columns must not be changed */
   public List<Column> getColumns() {
-    Map<String, Column> result = new LinkedHashMap<>();
-    Map<String, Column> meta = new LinkedHashMap<>();
-    if (getInheritedTable() != null) {
-      // we create copies so we don't need worry on changes
-      for (Column col : getInheritedTable().getColumns()) {
-        if (col.getName().startsWith("mg_")) {
-          meta.put(col.getName(), new Column(getInheritedTable(), col));
-        } else {
-          result.put(col.getName(), new Column(getInheritedTable(), col));
-        }
-      }
-    }
-
-    // ignore primary key from child class because that is same as in inheritedTable
-    for (Column col : getLocalColumns()) {
-      if (!result.containsKey(col.getName())) {
-        result.put(col.getName(), new Column(col.getTable(), col));
-      }
-    }
-
-    // add meta at the end
-    result.putAll(meta);
-
-    return new ArrayList<>(result.values());
+    return getColumnCache().columns;
   }
 
   public List<Column> getColumnsWithoutConstant() {
@@ -229,13 +231,9 @@ public class TableMetadata {
     return new ArrayList<>(result.values());
   }
 
+  /** @return immutable list of column names, including inherited */
   public List<String> getColumnNames() {
-    List<String> result = new ArrayList<>();
-    if (inherit != null) {
-      result.addAll(getInheritedTable().getColumnNames());
-    }
-    result.addAll(getLocalColumnNames());
-    return result;
+    return getColumnCache().names;
   }
 
   public List<String> getLocalColumnNames() {
@@ -258,12 +256,79 @@ public class TableMetadata {
   }
 
   public Column getColumn(String name) {
-    if (columns.containsKey(name)) return new Column(this, columns.get(name));
-    if (inherit != null) {
-      Column c = getInheritedTable().getColumn(name);
-      if (c != null) return new Column(c.getTable(), c);
+    // return a copy because callers use it as starting point for alterColumn
+    Column c = getColumnCache().index.get(name);
+    return c != null ? new Column(c.getTable(), c) : null;
+  }
+
+  /** invalidates the cached column views, to be called on any change of the columns */
+  protected void invalidateColumns() {
+    columnsVersion++;
+    columnCache = null;
+  }
+
+  private ColumnCache getColumnCache() {
+    TableMetadata inheritedTable = getInheritedTable();
+    List<Column> inheritedColumns = inheritedTable != null ? inheritedTable.getColumns() : null;
+    ColumnCache cache = columnCache;
+    // inherited tables have their own cache, so compare by identity to see if it changed
+    if (cache == null
+        || cache.version != columnsVersion
+        || cache.inheritedColumns != inheritedColumns) {
+      cache = new ColumnCache(columnsVersion, inheritedTable, inheritedColumns);
+      columnCache = cache;
+    }
+    return cache;
+  }
+
+  private class ColumnCache {
+    private final int version;
+    private final List<Column> inheritedColumns;
+    private final List<Column> columns;
+    private final List<String> names;
+    private final Map<String, Column> index;
+
+    private ColumnCache(int version, TableMetadata inheritedTable, List<Column> inheritedColumns) {
+      this.version = version;
+      this.inheritedColumns = inheritedColumns;
+
+      Map<String, Column> result = new LinkedHashMap<>();
+      Map<String, Column> meta = new LinkedHashMap<>();
+      List<String> nameList = new ArrayList<>();
+      Map<String, Column> columnIndex = new HashMap<>();
+      if (inheritedTable != null) {
+        // we create copies so we don't need worry on changes
+        for (Column col : inheritedColumns) {
+          if (col.getName().startsWith("mg_")) {
+            meta.put(col.getName(), new Column(inheritedTable, col));
+          } else {
+            result.put(col.getName(), new Column(inheritedTable, col));
+          }
+        }
+        nameList.addAll(inheritedTable.getColumnNames());
+        columnIndex.putAll(inheritedTable.getColumnCache().index);
+      }
+
+      // ignore primary key from child class because that is same as in inheritedTable
+      for (Column col : getLocalColumns()) {
+        if (!result.containsKey(col.getName())) {
+          result.put(col.getName(), new Column(col.getTable(), col));
+        }
+        nameList.add(col.getName());
+      }
+
+      // add meta at the end
+      result.putAll(meta);
+
+      // own columns take precedence over inherited ones, e.g. for mg_tableclass
+      for (Column col : TableMetadata.this.columns.values()) {
+        columnIndex.put(col.getName(), new Column(TableMetadata.this, col));
+      }
+
+      this.columns = Collections.unmodifiableList(new ArrayList<>(result.values()));
+      this.names = Collections.unmodifiableList(nameList);
+      this.index = Collections.unmodifiableMap(columnIndex);
     }
-    return null;
   }
 
   public TableMetadata add(Column... column) {
@@ -271,9 +336,10 @@ public class TableMetadata {
       if (c.getPosition() == null) {
         c.setPosition(columns.size());
       }
-      columns.put(c.getName(), new Column(this, c));
+      getColumnsToChange().put(c.getName(), new Column(this, c));
       c.setTable(this);
     }
+    invalidateColumns();
     return this;
   }
 
@@ -287,10 +353,11 @@ public class TableMetadata {
       column.setPosition(columns.get(name).getPosition());
     }
     // remove the old
-    columns.remove(name);
+    getColumnsToChange().remove(name);
     // add the new
-    columns.put(column.getName(), new Column(this, column));
+    getColumnsToChange().put(column.getName(), new Column(this, column));
     column.setTable(this);
+    invalidateColumns();
     return this;
   }
 
@@ -299,7 +366,8 @@ public class TableMetadata {
       throw new MolgenisException("Remove column failed: Column is primary key");
     if (columns.get(name) == null)
       throw new MolgenisException("Remove column failed: Column '" + name + "' unknown");
-    columns.remove(name);
+    getColumnsToChange().remove(name);
+    invalidateColumns();
   }
 
   public String getInherit() {
@@ -308,6 +376,7 @@ public class TableMetadata {
 
   public TableMetadata setInherit(String otherTable) {
     this.inherit = otherTable;
+    invalidateColumns();
     return this;
   }
 
@@ -371,9 +440,11 @@ public class TableMetadata {
 
   public void clearCache() {
     columns = new LinkedHashMap<>();
+    sharedColumns = false;
     settings = new LinkedHashMap<>();
     inherit = null;
     importSchema = null;
+    invalidateColumns();
   }
 
   public boolean exists() {
@@ -382,6 +453,7 @@ public class TableMetadata {
 
   public TableMetadata removeInherit() {
     this.inherit = null;
+    invalidateColumns();
     return this;
   }
 
@@ -432,17 +504,32 @@ public class TableMetadata {
   }
 
   public void removeKey(int key) {
+    getColumnsToChange();
     for (Column c : this.getStoredColumns()) {
       if (c.getKey() == key) {
         c.removeKey();
       }
     }
+    invalidateColumns();
   }
 
   public Column getLocalColumn(String name) {
     return columns.get(name);
   }
 
+  /** @return the columns of this table to be changed, copied first if shared */
+  protected Map<String, Column> getColumnsToChange() {
+    if (sharedColumns) {
+      Map<String, Column> copy = new LinkedHashMap<>();
+      for (Column c : columns.values()) {
+        copy.put(c.getName(), new Column(this, c));
+      }
+      columns = copy;
+      sharedColumns = false;
+    }
+    return columns;
+  }
+
   public org.jooq.Table<Record> getJooqTable() {
     return DSL.table(name(getSchemaName(), getTableName()));
   }
@@ -473,6 +560,7 @@ public class TableMetadata {
 
   public TableMetadata setImportSchema(String importSchema) {
     this.importSchema = importSchema;
+    invalidateColumns();
     return this;
   }
 
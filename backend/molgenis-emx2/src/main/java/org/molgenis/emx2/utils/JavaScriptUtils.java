@@ -1,16 +1,34 @@
 package org.molgenis.emx2.utils;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
-import javax.script.*;
+import java.util.*;
+import org.graalvm.polyglot.*;
 import org.molgenis.emx2.MolgenisException;
 import org.molgenis.emx2.Row;
 
+/**
+ * Executes the javascript of computed and validation columns. Each thread has its own Context, all
+ * sharing one polyglot Engine, so parsed scripts are reused. Parsed Sources are kept in a bounded
+ * cache. Scripts are isolated within the context: values are passed in a fresh scope object, each
+ * script runs in its own block so top-level let/const can be declared again, and globals assigned
+ * by a script are removed afterwards.
+ */
 public class JavaScriptUtils {
-
-  private static ScriptEngine engine = new ScriptEngineManager().getEngineByName("graal.js");
-  private static Bindings valueBindings = engine.createBindings();
-  private static Map<String, CompiledScript> cache = new LinkedHashMap<>();
+  private static final int SOURCE_CACHE_SIZE = 1000;
+  private static final String SCOPE = "mg_scope";
+  private static final Engine engine = Engine.create();
+  private static final HostAccess hostAccess =
+      HostAccess.newBuilder().allowArrayAccess(true).allowListAccess(true).build();
+  private static final Map<String, Source> cache =
+      Collections.synchronizedMap(
+          new LinkedHashMap<String, Source>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Source> eldest) {
+              return size() > SOURCE_CACHE_SIZE;
+            }
+          });
+  // a context may only be used by one thread at a time
+  private static final ThreadLocal<ScriptContext> contexts =
+      ThreadLocal.withInitial(ScriptContext::new);
 
   private JavaScriptUtils() {
     // hide constructor
@@ -18,45 +36,112 @@ public class JavaScriptUtils {
 
   public static String executeJavascriptOnValue(String script, Object value) {
     try {
-      valueBindings.put("value", value);
-      return execute(script, valueBindings);
-    } catch (ScriptException e) {
+      return contexts
+          .get()
+          .execute(getSource(script), Collections.singletonMap("value", value), false);
+    } catch (PolyglotException e) {
       throw new MolgenisException("Validation system failed", e);
     }
   }
 
-  public static String executeJavascriptOnMap(String script, Map<String, Object> map) {
+  /** evaluates one validation script for a whole batch of values, returning one result per value */
+  public static List<String> executeJavascriptOnValues(String script, List<?> values) {
+    Source source = getSource(script);
+    ScriptContext context = contexts.get();
+    List<String> result = new ArrayList<>(values.size());
     try {
-      // ScriptEngine engine = new NashornScriptEngineFactory().getScriptEngine("--language=es6");
-      Bindings bindings = engine.createBindings();
-      for (Map.Entry<String, Object> col : map.entrySet()) {
-        bindings.put(col.getKey(), col.getValue());
+      for (Object value : values) {
+        result.add(context.execute(source, Collections.singletonMap("value", value), false));
       }
-      return engine.eval(script, bindings).toString();
-    } catch (Exception e) {
+    } catch (PolyglotException e) {
+      throw new MolgenisException("Validation system failed", e);
+    }
+    return result;
+  }
+
+  public static String executeJavascriptOnMap(String script, Map<String, Object> map) {
+    try {
+      return contexts.get().execute(getSource(script), map, false);
+    } catch (RuntimeException e) {
       throw new MolgenisException("Compute value failed on script [" + script + "]", e);
     }
   }
 
   public static String executeJavascriptOnRow(String script, Row row) {
     try {
-      // ScriptEngine engine = new NashornScriptEngineFactory().getScriptEngine("--language=es6");
-      Bindings bindings = engine.createBindings();
-      for (Map.Entry<String, Object> col : row.getValueMap().entrySet()) {
-        bindings.put(col.getKey().replace("-", "$"), col.getValue());
+      return contexts.get().execute(getSource(script), row.getValueMap(), true);
+    } catch (RuntimeException e) {
+      throw new MolgenisException("Compute value failed on script [" + script + "]", e);
+    }
+  }
+
+  /** evaluates one script for a whole batch of rows, returning one result per row */
+  public static List<String> executeJavascriptOnRows(String script, List<Row> rows) {
+    Source source = getSource(script);
+    ScriptContext context = contexts.get();
+    List<String> result = new ArrayList<>(rows.size());
+    try {
+      for (Row row : rows) {
+        result.add(context.execute(source, row.getValueMap(), true));
       }
-      return engine.eval(script, bindings).toString();
-    } catch (Exception e) {
+    } catch (RuntimeException e) {
       throw new MolgenisException("Compute value failed on script [" + script + "]", e);
     }
+    return result;
+  }
+
+  /**
+   * names are first looked up in the scope, and the block keeps let/const local to the evaluation;
+   * the value of the block is the value of the script
+   */
+  private static Source getSource(String script) {
+    return cache.computeIfAbsent(
+        script,
+        s ->
+            Source.newBuilder("js", "with (" + SCOPE + ") {\n" + s + "\n}", "script")
+                .cached(true)
+                .buildLiteral());
   }
 
-  private static String execute(String script, Bindings bindings) throws ScriptException {
-    if (cache.get(script) == null) {
-      cache.put(script, ((Compilable) engine).compile(script));
+  private static class ScriptContext {
+    private final Context context;
+    private final Value globals;
+    private final Value createScope;
+    private final Value removeGlobals;
+
+    ScriptContext() {
+      context = Context.newBuilder("js").engine(engine).allowHostAccess(hostAccess).build();
+      globals = context.getBindings("js");
+      // not enumerable, so not removed by removeGlobals
+      context.eval(
+          "js",
+          "Object.defineProperty(globalThis, '" + SCOPE + "', {writable: true, value: null})");
+      createScope = context.eval("js", "(function() { return Object.create(null); })");
+      // builtins are not enumerable; 'var' globals cannot be deleted so are emptied instead
+      removeGlobals =
+          context.eval(
+              "js",
+              "(function() { for (var name in globalThis) {"
+                  + " if (!delete globalThis[name]) globalThis[name] = undefined; } })");
+    }
+
+    String execute(Source source, Map<String, Object> values, boolean replaceDashes) {
+      Value scope = createScope.execute();
+      for (Map.Entry<String, Object> entry : values.entrySet()) {
+        String name = replaceDashes ? entry.getKey().replace("-", "$") : entry.getKey();
+        scope.putMember(name, entry.getValue());
+      }
+      globals.putMember(SCOPE, scope);
+      try {
+        Value result = context.eval(source);
+        if (result.isNull()) {
+          return null;
+        }
+        return result.isString() ? result.asString() : result.toString();
+      } finally {
+        globals.putMember(SCOPE, null);
+        removeGlobals.executeVoid();
+      }
     }
-    Object result = cache.get(script).eval(bindings);
-    if (result != null) return result.toString();
-    else return null;
   }
 }
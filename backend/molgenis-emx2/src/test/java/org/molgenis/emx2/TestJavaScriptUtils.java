@@ -0,0 +1,79 @@
+package org.molgenis.emx2;
+
+import static org.junit.Assert.*;
+import static org.molgenis.emx2.Row.row;
+import static org.molgenis.emx2.utils.JavaScriptUtils.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+public class TestJavaScriptUtils {
+
+  @Test
+  public void testComputeAndValidate() {
+    assertEquals("3", executeJavascriptOnRow("a + b", row("a", 1, "b", 2)));
+    assertEquals("ab", executeJavascriptOnRow("a + b", row("a", "a", "b", "b")));
+    assertEquals("2", executeJavascriptOnRow("my$col * 2", row("my-col", 1)));
+    assertNull(executeJavascriptOnValue("if(value < 0) 'should be positive'", 1));
+    assertEquals(
+        "should be positive", executeJavascriptOnValue("if(value < 0) 'should be positive'", -1));
+
+    // values of a previous row don't leak into the next
+    executeJavascriptOnRow("a", row("a", 1));
+    assertEquals("undefined", executeJavascriptOnRow("typeof a", row("b", 1)));
+
+    try {
+      executeJavascriptOnRow("a +", row("a", 1));
+      fail("syntax error should fail");
+    } catch (MolgenisException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testScriptsDontShareGlobals() {
+    // top-level declarations may be evaluated again
+    assertEquals("1", executeJavascriptOnValue("let x = value; x", 1));
+    assertEquals("2", executeJavascriptOnValue("let x = value; x", 2));
+    assertEquals(
+        List.of("1", "2"),
+        executeJavascriptOnRows("const y = i; y", List.of(row("i", 1), row("i", 2))));
+
+    // globals assigned by one script are not visible to the next
+    executeJavascriptOnRow("leaked = a", row("a", 1));
+    assertEquals("undefined", executeJavascriptOnRow("typeof leaked", row("a", 1)));
+    executeJavascriptOnRow("var declared = a; function f() {}", row("a", 1));
+    assertEquals("undefined", executeJavascriptOnRow("typeof declared", row("a", 1)));
+    assertEquals("undefined", executeJavascriptOnRow("typeof f", row("a", 1)));
+    assertEquals("2", executeJavascriptOnRow("var declared = a; declared", row("a", 2)));
+  }
+
+  @Test
+  public void testBatchAndThreads() throws Exception {
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      rows.add(row("i", i));
+    }
+    List<String> result = executeJavascriptOnRows("i * 2", rows);
+    assertEquals(100, result.size());
+    assertEquals("198", result.get(99));
+    assertEquals(
+        Arrays.asList(null, "should be positive"),
+        executeJavascriptOnValues("if(value < 0) 'should be positive'", List.of(1, -1)));
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<List<String>>> futures = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      futures.add(executor.submit(() -> executeJavascriptOnRows("i * 2", rows)));
+    }
+    for (Future<List<String>> future : futures) {
+      assertEquals(result, future.get());
+    }
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,67 @@
+package org.molgenis.emx2;
+
+import static org.junit.Assert.*;
+import static org.molgenis.emx2.Column.column;
+import static org.molgenis.emx2.TableMetadata.table;
+
+import java.util.List;
+import org.junit.Test;
+
+public class TestTableMetadataColumns {
+
+  @Test
+  public void testColumnsAreCachedUntilChanged() {
+    TableMetadata person = table("Person", column("name").setPkey(), column("age"));
+    List<Column> columns = person.getColumns();
+    assertSame(columns, person.getColumns());
+    assertSame(person.getColumnNames(), person.getColumnNames());
+    assertEquals(List.of("name", "age"), person.getColumnNames());
+
+    try {
+      columns.add(column("other"));
+      fail("column list should be immutable");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+
+    person.add(column("city"));
+    assertNotSame(columns, person.getColumns());
+    assertEquals(List.of("name", "age", "city"), person.getColumnNames());
+
+    person.alterColumn("city", column("town"));
+    assertNull(person.getColumn("city"));
+    assertNotNull(person.getColumn("town"));
+
+    person.dropColumn("town");
+    assertEquals(List.of("name", "age"), person.getColumnNames());
+  }
+
+  @Test
+  public void testInheritedColumnsFollowParentChanges() {
+    SchemaMetadata schema = new SchemaMetadata("test");
+    TableMetadata person = schema.create(table("Person", column("name").setPkey()));
+    TableMetadata employee = schema.create(table("Employee", column("salary")));
+    assertEquals(List.of("salary"), employee.getColumnNames());
+
+    employee.setInherit("Person");
+    assertEquals("name", employee.getColumns().get(0).getName());
+    assertEquals("salary", employee.getColumns().get(1).getName());
+    assertEquals("Person", employee.getColumn("name").getTableName());
+
+    // changes in the parent are visible without touching the child
+    person.add(column("age"));
+    assertNotNull(employee.getColumn("age"));
+    assertTrue(employee.getColumnNames().contains("age"));
+    assertEquals(3, employee.getColumns().size());
+
+    employee.removeInherit();
+    assertEquals(List.of("salary"), employee.getColumnNames());
+  }
+
+  @Test
+  public void testGetColumnReturnsCopy() {
+    TableMetadata person = table("Person", column("name").setPkey());
+    person.getColumn("name").setDescription("changed");
+    assertNull(person.getColumn("name").getDescription());
+  }
+}